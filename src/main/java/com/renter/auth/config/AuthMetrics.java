@@ -0,0 +1,114 @@
+package com.renter.auth.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.ws.rs.WebApplicationException;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for the stages of the auth pipeline, published as percentile histograms so latency
+ * can be aggregated across instances and broken down per stage and outcome.
+ *
+ * <ul>
+ *     <li>{@code auth.stage{stage,outcome}}: local work per request, i.e. JWT parse, key lookup,
+ *     signature verify, JWKS fetch and the user database lookup</li>
+ *     <li>{@code auth.keycloak.requests{operation,outcome}}: every call made to Keycloak</li>
+ * </ul>
+ */
+public final class AuthMetrics {
+
+    public static final String STAGE_TIMER = "auth.stage";
+    public static final String KEYCLOAK_TIMER = "auth.keycloak.requests";
+
+    public static final String SUCCESS = "success";
+    public static final String CLIENT_ERROR = "client_error";
+    public static final String SERVER_ERROR = "server_error";
+    public static final String ERROR = "error";
+
+    private AuthMetrics() {
+    }
+
+    /**
+     * Timer for one outcome of a local stage. Stages on the request path should register their
+     * timers once and keep them, rather than looking them up per request.
+     */
+    public static Timer stageTimer(MeterRegistry meterRegistry, String stage, String outcome) {
+        return Timer.builder(STAGE_TIMER)
+                .description("Duration of each auth pipeline stage, by outcome")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+
+    public static Timer keycloakTimer(MeterRegistry meterRegistry, String operation, String outcome) {
+        return Timer.builder(KEYCLOAK_TIMER)
+                .description("Duration of calls to Keycloak, by operation and outcome")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs one Keycloak call and records it under its operation, tagged with the outcome derived
+     * from the result or the exception it threw.
+     */
+    public static <T> T timeKeycloak(MeterRegistry meterRegistry, String operation, Callable<T> call) throws Exception {
+        long start = System.nanoTime();
+        String outcome = SUCCESS;
+        try {
+            return call.call();
+        } catch (Exception e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            recordKeycloak(meterRegistry, operation, outcome, start);
+        }
+    }
+
+    /**
+     * Records a Keycloak call started at {@code startNanos}, for calls whose outcome is an HTTP
+     * status rather than an exception.
+     */
+    public static void recordKeycloak(MeterRegistry meterRegistry, String operation, String outcome, long startNanos) {
+        keycloakTimer(meterRegistry, operation, outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Classifies a failed call: HTTP 4xx and 5xx answers from either the REST template or the
+     * admin client, and anything else (timeouts, refused connections, bad payloads) as error.
+     */
+    public static String outcome(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            int status = 0;
+            if (cause instanceof HttpStatusCodeException httpError) {
+                status = httpError.getStatusCode().value();
+            } else if (cause instanceof WebApplicationException webError && webError.getResponse() != null) {
+                status = webError.getResponse().getStatus();
+            }
+            if (status >= 500) {
+                return SERVER_ERROR;
+            }
+            if (status >= 400) {
+                return CLIENT_ERROR;
+            }
+        }
+        return ERROR;
+    }
+
+    public static String statusOutcome(int status) {
+        if (status >= 500) {
+            return SERVER_ERROR;
+        }
+        return status >= 400 ? CLIENT_ERROR : SUCCESS;
+    }
+}
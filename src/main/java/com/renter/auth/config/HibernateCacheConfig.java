@@ -0,0 +1,70 @@
+package com.renter.auth.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.renter.auth.model.User;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Caffeine-backed JCache manager for Hibernate's second-level cache. Every region is created
+ * here with a bounded size and TTL, so an entity or query added to the cache without a region
+ * below fails fast at startup.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    static final String USER_REGION = User.class.getName();
+    static final String USER_NATURAL_ID_REGION = User.class.getName() + "##NaturalId";
+
+    @Value("${auth.entity-cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Value("${auth.entity-cache.ttl:PT10M}")
+    private Duration ttl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+
+        createIfMissing(cacheManager, USER_REGION, bounded());
+        createIfMissing(cacheManager, USER_NATURAL_ID_REGION, bounded());
+        createIfMissing(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, bounded());
+        // Last-update time per table; must outlive every cached query result, so never expired
+        createIfMissing(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, unbounded());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private CaffeineConfiguration<Object, Object> bounded() {
+        CaffeineConfiguration<Object, Object> configuration = unbounded();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        return configuration;
+    }
+
+    private static CaffeineConfiguration<Object, Object> unbounded() {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+
+    private static void createIfMissing(CacheManager cacheManager, String name, CaffeineConfiguration<Object, Object> configuration) {
+        if (cacheManager.getCache(name) == null) {
+            cacheManager.createCache(name, configuration);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.renter.auth.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * One pooled, keep-alive HTTP client shared by all Keycloak token, userinfo and JWKS traffic,
+ * so login bursts reuse connections instead of opening one per password grant.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${keycloak.http.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${keycloak.http.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${keycloak.http.connect-timeout:PT5S}")
+    private Duration connectTimeout;
+
+    @Value("${keycloak.http.response-timeout:PT15S}")
+    private Duration responseTimeout;
+
+    @Value("${keycloak.http.pool-acquire-timeout:PT2S}")
+    private Duration poolAcquireTimeout;
+
+    @Value("${keycloak.http.keep-alive:PT30S}")
+    private Duration keepAlive;
+
+    @Value("${keycloak.http.connection-ttl:PT5M}")
+    private Duration connectionTtl;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager keycloakConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(responseTimeout))
+                        .setTimeToLive(TimeValue.of(connectionTtl))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "keycloak").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient keycloakHttpClient(PoolingHttpClientConnectionManager keycloakConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(keycloakConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolAcquireTimeout))
+                        .setResponseTimeout(Timeout.of(responseTimeout))
+                        .build())
+                // Keycloak does not send Keep-Alive hints, so cap how long an idle connection is trusted
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(keepAlive))
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                .evictExpiredConnections()
+                .build();
+    }
+
+    @Bean
+    public RestTemplate keycloakRestTemplate(CloseableHttpClient keycloakHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(keycloakHttpClient));
+    }
+}
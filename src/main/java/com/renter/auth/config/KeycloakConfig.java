@@ -1,12 +1,26 @@
 package com.renter.auth.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
 import org.keycloak.OAuth2Constants;
+import org.keycloak.admin.client.JacksonProvider;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class KeycloakConfig{
 
@@ -29,8 +43,26 @@ public class KeycloakConfig{
     @Value("${keycloak.admin-password}")
     private String adminPassword;
 
-    @Bean
-    public Keycloak keycloak() {
+    @Value("${keycloak.admin.http.max-connections:20}")
+    private int maxConnections;
+
+    @Value("${keycloak.admin.http.connect-timeout:PT5S}")
+    private Duration connectTimeout;
+
+    @Value("${keycloak.admin.http.response-timeout:PT15S}")
+    private Duration responseTimeout;
+
+    @Value("${keycloak.admin.http.pool-acquire-timeout:PT2S}")
+    private Duration poolAcquireTimeout;
+
+    @Value("${keycloak.admin.http.keep-alive:PT30S}")
+    private Duration keepAlive;
+
+    @Value("${keycloak.admin.http.connection-ttl:PT5M}")
+    private Duration connectionTtl;
+
+    @Bean(destroyMethod = "close")
+    public Keycloak keycloak(MeterRegistry meterRegistry) {
 
         return KeycloakBuilder.builder()
                 .serverUrl(authServiceUrl)
@@ -40,6 +72,42 @@ public class KeycloakConfig{
                 .clientSecret(clientSecret)
                 .grantType(OAuth2Constants.CLIENT_CREDENTIALS)
                 .clientId(clientId)
+                .resteasyClient(adminClient(meterRegistry))
+                .build();
+    }
+
+    /**
+     * RESTEasy client for the admin API on a sized, timed-out connection pool. The admin client's
+     * default transport has a 10-connection pool and no timeouts, so a slow Keycloak would hold
+     * callers indefinitely. RESTEasy's pooled engine is Apache HttpClient 4, hence not the
+     * HttpClient 5 pool in {@link HttpClientConfig}.
+     */
+    @SuppressWarnings("deprecation") // Micrometer's HttpClient 4 pool binder; same meters as the HttpClient 5 one
+    private Client adminClient(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(connectionTtl.toMillis(), TimeUnit.MILLISECONDS);
+        // All admin calls go to the one Keycloak host
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(2000);
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "keycloak-admin").bindTo(meterRegistry);
+
+        CloseableHttpClient httpClient = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) connectTimeout.toMillis())
+                        .setSocketTimeout((int) responseTimeout.toMillis())
+                        .setConnectionRequestTimeout((int) poolAcquireTimeout.toMillis())
+                        .build())
+                .setKeepAliveStrategy((response, context) -> keepAlive.toMillis())
+                .evictIdleConnections(keepAlive.toMillis(), TimeUnit.MILLISECONDS)
+                .evictExpiredConnections()
+                .build();
+
+        // Closing the Keycloak client closes the engine, the HTTP client and its pool
+        return ((ResteasyClientBuilder) ClientBuilder.newBuilder())
+                .httpEngine(new ApacheHttpClient43Engine(httpClient, true))
+                .register(JacksonProvider.class, 100)
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.renter.auth.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps roughly one in {@code rate} DEBUG and TRACE events from the configured logger prefixes,
+ * so per-request debug logging can stay switched on under load. The decision is made before the
+ * event is created, so dropped events cost neither formatting nor allocation.
+ *
+ * Events carrying an exception, and events from loggers not enabled for their level, are left
+ * to the normal level check.
+ */
+public class SampledDebugTurboFilter extends TurboFilter {
+
+    private final List<String> loggerPrefixes = new ArrayList<>();
+    private int rate = 1;
+
+    public void addLoggerPrefix(String loggerPrefix) {
+        loggerPrefixes.add(loggerPrefix);
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format is null for isDebugEnabled() style checks, which must not be sampled
+        if (rate <= 1 || format == null || t != null || level.toInt() > Level.DEBUG_INT) {
+            return FilterReply.NEUTRAL;
+        }
+        // The level check is done here rather than via logger.isEnabledFor, which would re-enter this filter
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel()) || !matches(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        return ThreadLocalRandom.current().nextInt(rate) == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean matches(String loggerName) {
+        for (String prefix : loggerPrefixes) {
+            if (loggerName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,21 +1,42 @@
 package com.renter.auth.controller;
 
 import com.renter.auth.dto.LoginRequest;
+import com.renter.auth.dto.MeView;
+import com.renter.auth.dto.RefreshTokenRequest;
 import com.renter.auth.dto.RegisterRequest;
+import com.renter.auth.dto.TokenInfo;
+import com.renter.auth.dto.TokenResponse;
+import com.renter.auth.exception.ConflictException;
+import com.renter.auth.exception.ResourceNotFoundException;
+import com.renter.auth.exception.ServiceUnavailableException;
+import com.renter.auth.model.ProvisioningTask;
 import com.renter.auth.model.UserProfile;
 import com.renter.auth.dto.UserProfileDto;
 import com.renter.auth.model.User;
+import com.renter.auth.security.AuthenticatedIdentity;
 import com.renter.auth.security.CurrentUser;
+import com.renter.auth.service.IdempotencyStore;
+import com.renter.auth.service.KeycloakProvisioningDispatcher;
 import com.renter.auth.service.KeycloakService;
+import com.renter.auth.service.LoginService;
+import com.renter.auth.service.RequestRateLimiter;
 import com.renter.auth.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -30,95 +51,183 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
-    @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody RegisterRequest request){
-        log.info("Registration attempt for email: {}", request.getEmail());
+    @Autowired
+    private KeycloakProvisioningDispatcher provisioningDispatcher;
 
-        String keycloakUserId = null;
+    @Autowired
+    private IdempotencyStore idempotencyStore;
 
-        try {
-            // Step 1: Create user in Keycloak first
-            keycloakUserId = keycloakService.createUser(
-                    request.getEmail(), // Use email as username
-                    request.getEmail(),
-                    request.getFirstName(),
-                    request.getLastName(),
-                    request.getPassword()
-            );
-            log.info("KeycloakUserId is {}", keycloakUserId);
+    @Autowired
+    private LoginService loginService;
 
+    @Autowired
+    private RequestRateLimiter rateLimiter;
 
+    @Value("${auth.idempotency.register-ttl:PT24H}")
+    private Duration registerIdempotencyTtl;
 
-            // Step 2: Create business user record linked to Keycloak
-    
-  
-            User savedUser = userService.saveUser(request, keycloakUserId);
+    // Replayed logins hand out the same tokens again, so keep them only briefly
+    @Value("${auth.idempotency.login-ttl:PT1M}")
+    private Duration loginIdempotencyTtl;
 
-  
+    @PostMapping("/register")
+    public ResponseEntity<?> register(@RequestBody RegisterRequest request,
+                                      @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                      HttpServletRequest httpRequest){
+        // Throttled before any database or Keycloak work, replays included
+        rateLimiter.checkRegister(httpRequest.getRemoteAddr(), request.getEmail());
+        return idempotencyStore.execute("register", idempotencyKey, request, registerIdempotencyTtl,
+                () -> doRegister(request));
+    }
 
-            log.info("Registration successful for email: {} with userId: {}", request.getEmail(), savedUser.getId());
+    private ResponseEntity<?> doRegister(RegisterRequest request){
+        log.debug("Registration attempt for email: {}", request.getEmail());
 
-            return ResponseEntity.ok(Map.of(
-                    "message", "User registered successfully",
-                    "userId", savedUser.getId(),
-                    "keycloakUserId", keycloakUserId
-            ));
+        // Shed load before doing any work while Keycloak provisioning is backed up
+        provisioningDispatcher.checkCapacity();
 
+        try {
+            // User, profile and Keycloak provisioning task are committed together;
+            // the Keycloak account is created in the background
+            ProvisioningTask task = userService.registerUser(request);
+            provisioningDispatcher.recordEnqueued();
+
+            log.info("Registration accepted for email: {} with userId: {}", request.getEmail(), task.getUserId());
+
+            String statusUrl = "/api/auth/register/" + task.getUserId() + "/status";
+            return ResponseEntity.accepted()
+                    .location(URI.create(statusUrl))
+                    .body(Map.of(
+                            "message", "Registration accepted, account is being provisioned",
+                            "userId", task.getUserId(),
+                            "keycloakUserId", task.getKeycloakUserId(),
+                            "status", task.getStatus(),
+                            "statusUrl", statusUrl
+                    ));
+
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Registration failed: " + e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent registration of the same email or phone number committed first
+            log.info("Registration conflict for email: {} - {}", request.getEmail(), e.getMostSpecificCause().getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Registration failed: Email or phone number already registered"));
         } catch (Exception e) {
-            // If business user creation fails, we should ideally clean up Keycloak user
-            // For now, just return error
-            System.out.println("Registration failed for email: {} - Error: {}"+request.getEmail()+e.getMessage());
-            if (keycloakUserId != null){
-                try {
-                    keycloakService.deleteUser(keycloakUserId);
-                    log.info("Rolled back Keycloak user: {}", keycloakUserId);
-
-                } catch (Exception cleanupEx) {
-                    // log but don't override main error
-                    log.error("Failed to rollback Keycloak user: {}", cleanupEx.getMessage());
-                }
-            }
-
+            log.warn("Registration failed for email: {} - Error: {}", request.getEmail(), e.getMessage());
             return ResponseEntity.badRequest()
                     .body(Map.of("error", "Registration failed: " + e.getMessage()));
         }
     }
 
+    /**
+     * Coarse provisioning status for anyone holding the user ID; attempts and the Keycloak error
+     * are only shown to the registered user and to admin or support staff.
+     */
+    @GetMapping("/register/{userId}/status")
+    public ResponseEntity<?> registrationStatus(@PathVariable UUID userId,
+                                                @CurrentUser AuthenticatedIdentity identity) {
+        ProvisioningTask task = userService.findProvisioningTask(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("No registration found for user " + userId));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("userId", task.getUserId());
+        body.put("status", task.getStatus());
+        if (mayViewProvisioningDetails(identity, task)) {
+            body.put("attempts", task.getAttempts());
+            if (task.getLastError() != null) {
+                body.put("error", task.getLastError());
+            }
+        }
+        return ResponseEntity.ok(body);
+    }
 
-    //First we do not need this login thing from //let's keep this endpoint hanging
-    @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request) {
-        try {
-            
-            Optional<User> userOpt = userService.findByEmail(request.getUsername());
+    private static boolean mayViewProvisioningDetails(AuthenticatedIdentity identity, ProvisioningTask task) {
+        if (identity == null) {
+            return false;
+        }
+        return task.getKeycloakUserId().equals(identity.subject())
+                || identity.roles().contains("admin") || identity.roles().contains("support");
+    }
 
-            if(!userOpt.isPresent()){
-                return ResponseEntity.notFound().build();
-            }
 
-            User user = userOpt.get();
+    //First we do not need this login thing from //let's keep this endpoint hanging
+    @PostMapping("/login")
+    public ResponseEntity<?> login(@RequestBody LoginRequest request,
+                                   @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                   HttpServletRequest httpRequest) {
+        rateLimiter.checkLogin(httpRequest.getRemoteAddr(), request.getUsername());
+        return idempotencyStore.execute("login", idempotencyKey, request, loginIdempotencyTtl,
+                () -> doLogin(request));
+    }
 
-            // Delegate to Keycloak for authentication
-            String token = keycloakService.authenticateUser(
+    private ResponseEntity<?> doLogin(LoginRequest request) {
+        try {
+            // User lookup and Keycloak password grant run concurrently
+            LoginService.LoginResult result = loginService.login(
                     request.getUsername(),
                     request.getPassword()
             );
 
-            return ResponseEntity.ok(Map.of(
-                    "user", user,
-                    "token", token,
-                    "message", "Login successful"
-            ));
+            if (result.user() == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            Map<String, Object> body = tokenBody(result.tokens());
+            body.put("user", result.user());
+            body.put("message", "Login successful");
+            return ResponseEntity.ok(body);
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(Map.of("error", "Login failed: " + e.getMessage()));
         }
     }
 
+    // Cheap refresh_token grant so clients do not replay the password grant when the access token expires
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest request) {
+        if (request.getRefreshToken() == null || request.getRefreshToken().isBlank()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Refresh token is required"));
+        }
+
+        // A rejected refresh token is a 401; Keycloak failures surface as 502 or 503
+        TokenResponse tokens = keycloakService.refreshToken(request.getRefreshToken());
+
+        Map<String, Object> body = tokenBody(tokens);
+        body.put("message", "Token refreshed");
+        return ResponseEntity.ok(body);
+    }
+
     @GetMapping("/current")
-    public ResponseEntity<?> getMyIdentity(@CurrentUser User user){
-        return ResponseEntity.ok(user);
+    public ResponseEntity<?> getMyIdentity(@CurrentUser AuthenticatedIdentity identity){
+        if (identity == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Authentication required"));
+        }
+
+        MeView me = userService.findMeView(identity.subject())
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        return ResponseEntity.ok(me);
+
+    }
+
+    // Lets other services describe a caller's token without each calling Keycloak's userinfo endpoint
+    @GetMapping("/token-info")
+    public ResponseEntity<TokenInfo> tokenInfo(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        return ResponseEntity.ok(keycloakService.getTokenInfo(authorization.substring("Bearer ".length())));
+    }
 
+    private static Map<String, Object> tokenBody(TokenResponse tokens) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("token", tokens.getAccessToken());
+        body.put("tokenType", tokens.getTokenType());
+        body.put("expiresIn", tokens.getExpiresIn());
+        body.put("refreshToken", tokens.getRefreshToken());
+        body.put("refreshExpiresIn", tokens.getRefreshExpiresIn());
+        return body;
     }
 
     @GetMapping("/health")
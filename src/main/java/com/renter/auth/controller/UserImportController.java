@@ -0,0 +1,82 @@
+package com.renter.auth.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renter.auth.dto.ImportRowResult;
+import com.renter.auth.service.UserImportReader;
+import com.renter.auth.service.UserImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/users")
+public class UserImportController {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportController.class);
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Streams an NDJSON or CSV file of registrations in and one NDJSON result per row back out,
+     * followed by a summary line. Nothing but the current chunk is buffered on either side.
+     */
+    @PostMapping(value = "/import", consumes = {NDJSON, CSV}, produces = NDJSON)
+    public void importUsers(@RequestHeader("Content-Type") String contentType,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserImportReader.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV))
+                ? UserImportReader.Format.CSV
+                : UserImportReader.Format.NDJSON;
+
+        response.setContentType(NDJSON);
+        OutputStream out = response.getOutputStream();
+        Map<ImportRowResult.Status, Long> totals = new EnumMap<>(ImportRowResult.Status.class);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        userImportService.importUsers(new UserImportReader(reader, format, objectMapper), results -> {
+            try {
+                for (ImportRowResult result : results) {
+                    totals.merge(result.status(), 1L, Long::sum);
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        Map<String, Object> summary = Map.of(
+                "summary", true,
+                "created", totals.getOrDefault(ImportRowResult.Status.created, 0L),
+                "skipped", totals.getOrDefault(ImportRowResult.Status.skipped, 0L),
+                "failed", totals.getOrDefault(ImportRowResult.Status.failed, 0L)
+        );
+        log.info("User import finished: {}", summary);
+        out.write(objectMapper.writeValueAsBytes(summary));
+        out.write('\n');
+        out.flush();
+    }
+}
@@ -0,0 +1,33 @@
+package com.renter.auth.controller;
+
+import com.renter.auth.dto.UserSearchPage;
+import com.renter.auth.model.User;
+import com.renter.auth.service.UserSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/users")
+public class UserSearchController {
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @GetMapping("/search")
+    public ResponseEntity<UserSearchPage> search(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String contains,
+            @RequestParam(required = false) String phone,
+            @RequestParam(required = false) User.UserType userType,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        UserSearchService.UserSearchCriteria criteria = new UserSearchService.UserSearchCriteria(q, contains, phone, userType, active);
+        return ResponseEntity.ok(userSearchService.search(criteria, cursor, limit));
+    }
+}
@@ -0,0 +1,38 @@
+package com.renter.auth.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one row of a bulk user import, streamed back to the caller as it is processed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportRowResult(
+        long line,
+        String email,
+        Status status,
+        UUID userId,
+        String keycloakUserId,
+        String error
+) {
+
+    public enum Status { created, skipped, failed }
+
+    public static ImportRowResult created(long line, String email, UUID userId, String keycloakUserId) {
+        return new ImportRowResult(line, email, Status.created, userId, keycloakUserId, null);
+    }
+
+    public static ImportRowResult skipped(long line, String email, String reason) {
+        return new ImportRowResult(line, email, Status.skipped, null, null, reason);
+    }
+
+    public static ImportRowResult failed(long line, String email, String error) {
+        return new ImportRowResult(line, email, Status.failed, null, null, error);
+    }
+
+    // Failed row whose Keycloak user was created but could not be removed again
+    public static ImportRowResult orphaned(long line, String email, String keycloakUserId, String error) {
+        return new ImportRowResult(line, email, Status.failed, null, keycloakUserId, error);
+    }
+}
@@ -0,0 +1,54 @@
+package com.renter.auth.dto;
+
+import com.renter.auth.model.User;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * Read model behind {@code /api/auth/current}: the user and its profile, loaded with one
+ * joined select straight into this record. {@code profile} is {@code null} for users without one.
+ */
+public record MeView(
+        UUID id,
+        String keycloakUserId,
+        String email,
+        String firstName,
+        String lastName,
+        String phoneNumber,
+        User.UserType userType,
+        Integer score,
+        Boolean isActive,
+        Boolean emailVerified,
+        ZonedDateTime createdAt,
+        Profile profile
+) {
+
+    public record Profile(
+            String addressLine1,
+            String addressLine2,
+            String city,
+            String state,
+            String country,
+            String postalCode,
+            String idProofType,
+            Boolean idProofVerified,
+            String emergencyContactName,
+            String emergencyContactPhone,
+            String emergencyContactRelation
+    ) {}
+
+    // Flat constructor targeted by the JPQL constructor expression in UserRepository
+    public MeView(UUID id, String keycloakUserId, String email, String firstName, String lastName,
+                  String phoneNumber, User.UserType userType, Integer score, Boolean isActive,
+                  Boolean emailVerified, ZonedDateTime createdAt,
+                  UUID profileId, String addressLine1, String addressLine2, String city, String state,
+                  String country, String postalCode, String idProofType, Boolean idProofVerified,
+                  String emergencyContactName, String emergencyContactPhone, String emergencyContactRelation) {
+        this(id, keycloakUserId, email, firstName, lastName, phoneNumber, userType, score, isActive,
+                emailVerified, createdAt,
+                profileId == null ? null : new Profile(addressLine1, addressLine2, city, state, country,
+                        postalCode, idProofType, idProofVerified, emergencyContactName, emergencyContactPhone,
+                        emergencyContactRelation));
+    }
+}
@@ -11,6 +11,7 @@ public class RegisterRequest {
     private String phoneNumber;
     private User.UserType userType;
     private UserProfileDto profile;
+    private String callbackUrl;
 
     // Getters and setters
     public String getUsername() { return username; }
@@ -52,6 +53,14 @@ public class RegisterRequest {
         this.profile = profile;
     }
 
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+
+    public void setCallbackUrl(String callbackUrl) {
+        this.callbackUrl = callbackUrl;
+    }
+
     @Override
     public String toString() {
         return "RegisterRequest{" +
@@ -59,10 +68,11 @@ public class RegisterRequest {
                 ", email='" + email + '\'' +
                 ", firstName='" + firstName + '\'' +
                 ", lastName='" + lastName + '\'' +
-                ", password='" + password + '\'' +
+                ", password='[PROTECTED]'" +
                 ", phoneNumber='" + phoneNumber + '\'' +
                 ", userType=" + userType + '\''+
                 ", profile=" + profile +
+                ", callbackUrl='" + callbackUrl + '\'' +
                 '}';
     }
 }
\ No newline at end of file
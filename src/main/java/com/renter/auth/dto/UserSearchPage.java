@@ -0,0 +1,9 @@
+package com.renter.auth.dto;
+
+import java.util.List;
+
+/**
+ * A page of search results; pass {@code nextCursor} back to get the following page. It is
+ * {@code null} on the last page.
+ */
+public record UserSearchPage(List<UserSummary> items, String nextCursor) {}
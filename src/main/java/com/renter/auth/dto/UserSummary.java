@@ -0,0 +1,27 @@
+package com.renter.auth.dto;
+
+import com.renter.auth.model.User;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * One row of the user directory search.
+ */
+public record UserSummary(
+        UUID id,
+        String keycloakUserId,
+        String email,
+        String firstName,
+        String lastName,
+        String phoneNumber,
+        User.UserType userType,
+        Boolean isActive,
+        ZonedDateTime createdAt
+) {
+
+    public static UserSummary of(User user) {
+        return new UserSummary(user.getId(), user.getKeycloakUserId(), user.getEmail(), user.getFirstName(),
+                user.getLastName(), user.getPhoneNumber(), user.getUserType(), user.getIsActive(), user.getCreatedAt());
+    }
+}
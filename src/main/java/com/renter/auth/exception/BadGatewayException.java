@@ -0,0 +1,7 @@
+package com.renter.auth.exception;
+
+public class BadGatewayException extends RuntimeException{
+    public BadGatewayException(String message, Throwable cause){
+        super(message, cause);
+    }
+}
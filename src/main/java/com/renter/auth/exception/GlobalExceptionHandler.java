@@ -3,6 +3,7 @@ package com.renter.auth.exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -30,6 +31,41 @@ public class GlobalExceptionHandler {
         return buildResponse(ex, HttpStatus.CONFLICT);
     }
 
+    // Not logged as an error: shedding is expected under load, and a line per shed request would flood the log
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<?> handleServiceUnavailable(ServiceUnavailableException ex) {
+        log.debug("Service unavailable: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorBody(ex, HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    // Not logged as an error: a client being throttled is expected and can be frequent
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<?> handleTooManyRequests(TooManyRequestsException ex) {
+        log.debug("Rate limited: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorBody(ex, HttpStatus.TOO_MANY_REQUESTS));
+    }
+
+    // Expected whenever a client holds an expired or revoked token, so not logged as an error
+    @ExceptionHandler(UnauthorizedException.class)
+    public ResponseEntity<?> handleUnauthorized(UnauthorizedException ex) {
+        log.debug("Unauthorized: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(errorBody(ex, HttpStatus.UNAUTHORIZED));
+    }
+
+    // The upstream failure is logged, the client only gets the generic message
+    @ExceptionHandler(BadGatewayException.class)
+    public ResponseEntity<?> handleBadGateway(BadGatewayException ex) {
+        log.error("Error [502]: {}: {}", ex.getMessage(),
+                ex.getCause() != null ? ex.getCause().getMessage() : null);
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                .body(errorBody(ex, HttpStatus.BAD_GATEWAY));
+    }
+
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ResponseEntity<?> handleDataIntegrityViolation(DataIntegrityViolationException ex){
 
@@ -47,11 +83,15 @@ public class GlobalExceptionHandler {
 
     private ResponseEntity<?> buildResponse(Exception ex, HttpStatus status) {
         log.error("Error [{}]: {}", status.value(), ex.getMessage());
-        return ResponseEntity.status(status).body(Map.of(
+        return ResponseEntity.status(status).body(errorBody(ex, status));
+    }
+
+    private static Map<String, Object> errorBody(Exception ex, HttpStatus status) {
+        return Map.of(
                 "timestamp", LocalDateTime.now().toString(),
                 "status", status.value(),
                 "error", status.getReasonPhrase(),
                 "message", ex.getMessage()
-        ));
+        );
     }
 }
@@ -0,0 +1,7 @@
+package com.renter.auth.exception;
+
+public class UnauthorizedException extends RuntimeException{
+    public UnauthorizedException(String message){
+        super(message);
+    }
+}
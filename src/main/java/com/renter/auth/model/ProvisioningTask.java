@@ -0,0 +1,158 @@
+package com.renter.auth.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * Outbox row asking for a registered user to be created in Keycloak. Written in the same
+ * transaction as the {@link User} and worked off by the provisioning dispatcher.
+ *
+ * The password is only kept as a Keycloak-format PBKDF2 hash and is cleared once the user is
+ * provisioned.
+ */
+@Entity
+@Table(name = "keycloak_provisioning_outbox")
+public class ProvisioningTask {
+
+    @Id
+    @GeneratedValue
+    @UuidGenerator(algorithm = UuidV7Generator.class)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false, unique = true)
+    private UUID userId;
+
+    // Chosen up front and sent as the Keycloak user's id, so retries are idempotent
+    @Column(name = "keycloak_user_id", nullable = false, unique = true)
+    private String keycloakUserId;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(name = "first_name", length = 100)
+    private String firstName;
+
+    @Column(name = "last_name", length = 100)
+    private String lastName;
+
+    @Column(name = "credential_secret", length = 500)
+    private String credentialSecret;
+
+    @Column(name = "credential_data", length = 500)
+    private String credentialData;
+
+    @Column(name = "callback_url", length = 2000)
+    private String callbackUrl;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private ZonedDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private ZonedDateTime updatedAt;
+
+    public enum Status {
+        PENDING, PROVISIONED, FAILED
+    }
+
+    public ProvisioningTask() {}
+
+    public ProvisioningTask(User user, String username, String credentialSecret, String credentialData, String callbackUrl) {
+        this.userId = user.getId();
+        this.keycloakUserId = user.getKeycloakUserId();
+        this.username = username;
+        this.email = user.getEmail();
+        this.firstName = user.getFirstName();
+        this.lastName = user.getLastName();
+        this.credentialSecret = credentialSecret;
+        this.credentialData = credentialData;
+        this.callbackUrl = callbackUrl;
+        this.nextAttemptAt = Instant.now();
+    }
+
+    public UUID getId() { return id; }
+
+    public UUID getUserId() { return userId; }
+
+    public String getKeycloakUserId() { return keycloakUserId; }
+
+    public String getUsername() { return username; }
+
+    public String getEmail() { return email; }
+
+    public String getFirstName() { return firstName; }
+
+    public String getLastName() { return lastName; }
+
+    public String getCredentialSecret() { return credentialSecret; }
+
+    public String getCredentialData() { return credentialData; }
+
+    public String getCallbackUrl() { return callbackUrl; }
+
+    public Status getStatus() { return status; }
+
+    public Integer getAttempts() { return attempts; }
+
+    public Instant getNextAttemptAt() { return nextAttemptAt; }
+
+    public String getLastError() { return lastError; }
+
+    public ZonedDateTime getCreatedAt() { return createdAt; }
+    public ZonedDateTime getUpdatedAt() { return updatedAt; }
+
+    /**
+     * Leases the task to the calling dispatcher until {@code leaseUntil}; if that dispatcher dies
+     * the task simply becomes due again.
+     */
+    public void claim(Instant leaseUntil) {
+        this.attempts++;
+        this.nextAttemptAt = leaseUntil;
+    }
+
+    public void markProvisioned() {
+        this.status = Status.PROVISIONED;
+        this.lastError = null;
+        this.credentialSecret = null;
+        this.credentialData = null;
+    }
+
+    public void markFailed(String error) {
+        this.status = Status.FAILED;
+        this.lastError = truncate(error);
+        this.credentialSecret = null;
+        this.credentialData = null;
+    }
+
+    public void retryAt(Instant nextAttemptAt, String error) {
+        this.nextAttemptAt = nextAttemptAt;
+        this.lastError = truncate(error);
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
@@ -0,0 +1,42 @@
+package com.renter.auth.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered UUIDv7 (RFC 9562) primary keys: 48 bits of Unix milliseconds, a 12-bit sequence
+ * and 62 random bits. New keys sort after existing ones, so inserts append to the right edge of
+ * the primary-key and foreign-key B-trees instead of landing on random pages.
+ *
+ * Within one JVM keys are strictly increasing: the sequence counts up inside a millisecond and,
+ * if it overflows, borrows the next millisecond. v4 keys already in the tables stay valid, as
+ * both versions share the uuid column type, so existing rows need no rewrite; only new rows are
+ * ordered.
+ */
+public class UuidV7Generator implements UuidValueGenerator {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // (unix millis << 12) | sequence of the last key handed out
+    private static final AtomicLong LAST = new AtomicLong();
+
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return next();
+    }
+
+    public static UUID next() {
+        long candidate = System.currentTimeMillis() << 12;
+        long timeAndSequence = LAST.updateAndGet(last -> Math.max(candidate, last + 1));
+
+        long millis = timeAndSequence >>> 12;
+        long sequence = timeAndSequence & 0xFFF;
+        long mostSigBits = (millis << 16) | 0x7000L | sequence;
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,33 @@
+package com.renter.auth.repository;
+
+import com.renter.auth.model.ProvisioningTask;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ProvisioningTaskRepository extends JpaRepository<ProvisioningTask, UUID> {
+
+    Optional<ProvisioningTask> findByUserId(UUID userId);
+
+    long countByStatus(ProvisioningTask.Status status);
+
+    // Lock timeout -2 is SKIP LOCKED, so several dispatchers can claim disjoint batches
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select t from ProvisioningTask t where t.status = :status and t.nextAttemptAt <= :now order by t.nextAttemptAt")
+    List<ProvisioningTask> findDueForUpdate(@Param("status") ProvisioningTask.Status status,
+                                            @Param("now") Instant now,
+                                            Pageable pageable);
+}
@@ -0,0 +1,14 @@
+package com.renter.auth.repository;
+
+import com.renter.auth.model.User;
+
+import java.util.Optional;
+
+/**
+ * Lookups by {@code keycloakUserId}, the natural id of {@link User}, which go through Hibernate's
+ * natural-id and entity caches instead of issuing a query every time.
+ */
+public interface UserNaturalIdRepository {
+
+    Optional<User> findByKeycloakUserId(String keycloakUserId);
+}
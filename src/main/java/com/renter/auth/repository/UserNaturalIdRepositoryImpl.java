@@ -0,0 +1,24 @@
+package com.renter.auth.repository;
+
+import com.renter.auth.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Unwrapping the shared EntityManager needs a session that outlives this call
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findByKeycloakUserId(String keycloakUserId) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(keycloakUserId);
+    }
+}
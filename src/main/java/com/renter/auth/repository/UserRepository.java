@@ -1,22 +1,51 @@
 package com.renter.auth.repository;
 
+import com.renter.auth.dto.MeView;
 import com.renter.auth.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID> {
+public interface UserRepository extends JpaRepository<User, UUID>, JpaSpecificationExecutor<User>, UserNaturalIdRepository {
 
-    Optional<User> findByEmail(String email);
-
-    Optional<User> findByKeycloakUserId(String keycloakUserId);
+    // Case-insensitive, like the unique index on lower(email) that serves it. Cached query: repeat
+    // lookups are answered from the query and entity caches until users is written
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select u from User u where lower(u.email) = lower(:email)")
+    Optional<User> findByEmail(@Param("email") String email);
 
     Optional<User> findByPhoneNumber(String phoneNumber);
 
     boolean existsByEmail(String email);
 
     boolean existsByPhoneNumber(String phoneNumber);
+
+    // User and profile in one left-joined select, mapped straight into the read model
+    @Query("""
+            select new com.renter.auth.dto.MeView(
+                u.id, u.keycloakUserId, u.email, u.firstName, u.lastName, u.phoneNumber, u.userType,
+                u.score, u.isActive, u.emailVerified, u.createdAt,
+                p.id, p.addressLine1, p.addressLine2, p.city, p.state, p.country, p.postalCode,
+                p.idProofType, p.idProofVerified, p.emergencyContactName, p.emergencyContactPhone,
+                p.emergencyContactRelation)
+            from User u left join UserProfile p on p.user = u
+            where u.keycloakUserId = :keycloakUserId
+            """)
+    Optional<MeView> findMeViewByKeycloakUserId(@Param("keycloakUserId") String keycloakUserId);
+
+    // One query per import chunk instead of an existsByEmail per row; emails are passed and returned
+    // lowercased, matching idx_users_email_prefix
+    @Query("select lower(u.email) from User u where lower(u.email) in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.renter.auth.repository;
+
+import com.renter.auth.model.User;
+import jakarta.persistence.criteria.Expression;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Locale;
+
+/**
+ * Filters for the user directory search. The expressions mirror the indexes in
+ * {@code V3__user_search_indexes.sql} and {@code V5__user_full_name_index.sql} (lower(...) with
+ * text_pattern_ops for prefixes, pg_trgm for substrings); change both together.
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {}
+
+    /**
+     * Email, first name or last name starting with {@code prefix}, case-insensitively.
+     */
+    public static Specification<User> matchesPrefix(String prefix) {
+        return (root, query, cb) -> {
+            String pattern = escapeLike(prefix.toLowerCase(Locale.ROOT)) + "%";
+            return cb.or(
+                    cb.like(cb.lower(root.get("email")), pattern, '\\'),
+                    cb.like(cb.lower(root.get("firstName")), pattern, '\\'),
+                    cb.like(cb.lower(root.get("lastName")), pattern, '\\')
+            );
+        };
+    }
+
+    /**
+     * Email or full name containing {@code text}, case-insensitively. Users missing a first or
+     * last name still match on the other.
+     */
+    public static Specification<User> contains(String text) {
+        return (root, query, cb) -> {
+            String pattern = "%" + escapeLike(text.toLowerCase(Locale.ROOT)) + "%";
+            // Literals, not bind parameters, so the SQL is exactly the idx_users_full_name_trgm expression:
+            // lower(coalesce(first_name, '') || ' ' || coalesce(last_name, ''))
+            Expression<String> fullName = cb.lower(cb.concat(
+                    cb.concat(cb.coalesce(root.get("firstName"), cb.literal("")), cb.literal(" ")),
+                    cb.coalesce(root.get("lastName"), cb.literal(""))));
+            return cb.or(
+                    cb.like(cb.lower(root.get("email")), pattern, '\\'),
+                    cb.like(fullName, pattern, '\\')
+            );
+        };
+    }
+
+    public static Specification<User> phoneStartsWith(String phonePrefix) {
+        return (root, query, cb) -> cb.like(root.get("phoneNumber"), escapeLike(phonePrefix) + "%", '\\');
+    }
+
+    public static Specification<User> hasUserType(User.UserType userType) {
+        return (root, query, cb) -> cb.equal(root.get("userType"), userType);
+    }
+
+    public static Specification<User> isActive(boolean active) {
+        return (root, query, cb) -> cb.equal(root.get("isActive"), active);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,71 @@
+package com.renter.auth.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Identity of the caller as stated by the verified access token. Set as the authentication
+ * principal by {@link JwtAuthFilter}.
+ *
+ * Handlers that only need who the caller is can take {@code @CurrentUser AuthenticatedIdentity}
+ * and skip the database; {@code @CurrentUser User} still loads the full entity.
+ */
+public record AuthenticatedIdentity(
+        String subject,
+        String username,
+        String email,
+        String firstName,
+        String lastName,
+        Set<String> roles
+) implements AuthenticatedPrincipal {
+
+    public static AuthenticatedIdentity fromClaims(Map<String, Object> claims) {
+        return new AuthenticatedIdentity(
+                stringClaim(claims, "sub"),
+                stringClaim(claims, "preferred_username"),
+                stringClaim(claims, "email"),
+                stringClaim(claims, "given_name"),
+                stringClaim(claims, "family_name"),
+                realmRoles(claims)
+        );
+    }
+
+    @Override
+    public String getName() {
+        return subject;
+    }
+
+    public Collection<GrantedAuthority> authorities() {
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        for (String role : roles) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
+        }
+        return authorities;
+    }
+
+    private static String stringClaim(Map<String, Object> claims, String name) {
+        return claims.get(name) instanceof String value ? value : null;
+    }
+
+    // Keycloak puts realm roles under realm_access.roles
+    private static Set<String> realmRoles(Map<String, Object> claims) {
+        if (claims.get("realm_access") instanceof Map<?, ?> realmAccess
+                && realmAccess.get("roles") instanceof Collection<?> roles) {
+            List<String> names = new ArrayList<>(roles.size());
+            for (Object role : roles) {
+                if (role instanceof String name) {
+                    names.add(name);
+                }
+            }
+            return Set.copyOf(names);
+        }
+        return Set.of();
+    }
+}
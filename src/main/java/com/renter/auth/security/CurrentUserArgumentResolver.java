@@ -1,7 +1,7 @@
 package com.renter.auth.security;
 
 import com.renter.auth.model.User;
-import com.renter.auth.service.UserService;
+import com.renter.auth.service.CurrentUserLoader;
 import org.springframework.core.MethodParameter;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,33 +14,40 @@ import org.springframework.web.method.support.ModelAndViewContainer;
 @Component
 public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
 
-    private final UserService userService;
+    private final CurrentUserLoader currentUserLoader;
 
-    public CurrentUserArgumentResolver(UserService userService){
-        this.userService = userService;
+    public CurrentUserArgumentResolver(CurrentUserLoader currentUserLoader){
+        this.currentUserLoader = currentUserLoader;
     }
 
 
     @Override
     public boolean supportsParameter(MethodParameter parameter) {
-        return parameter.hasParameterAnnotation(CurrentUser.class) && parameter.getParameterType().equals(User.class);
+        Class<?> type = parameter.getParameterType();
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && (type.equals(User.class) || type.equals(AuthenticatedIdentity.class));
     }
 
     @Override
     public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
-
-        System.out.println("00000000000000000000000000008888888888888888888888888888888888");
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
         if (authentication == null || !authentication.isAuthenticated()){
             return null;
         }
 
-        String keycloakUserId = (String) authentication.getPrincipal();
+        if (!(authentication.getPrincipal() instanceof AuthenticatedIdentity identity)) {
+            return null;
+        }
+
+        // Claims-only handlers never touch the database
+        if (parameter.getParameterType().equals(AuthenticatedIdentity.class)) {
+            return identity;
+        }
 
-        System.out.println("000000000000000000000000000000000000000000000000000000"+ keycloakUserId);
+        String keycloakUserId = identity.subject();
 
-        return userService.findByKeycloakUserId(keycloakUserId).orElseThrow(() -> new RuntimeException("User not found"));
+        return currentUserLoader.load(keycloakUserId).orElseThrow(() -> new RuntimeException("User not found"));
 
 
     }
@@ -0,0 +1,20 @@
+package com.renter.auth.security;
+
+import com.nimbusds.jose.jwk.JWKSet;
+
+import java.time.Duration;
+
+/**
+ * Retrieves the realm's JWK set for {@link JwksKeyRegistry}.
+ */
+@FunctionalInterface
+public interface JwksFetcher {
+
+    Response fetch() throws Exception;
+
+    /**
+     * @param keys   the published key set
+     * @param maxAge the {@code Cache-Control: max-age} sent with it, or {@code null} if none
+     */
+    record Response(JWKSet keys, Duration maxAge) {}
+}
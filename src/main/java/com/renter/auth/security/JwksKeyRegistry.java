@@ -0,0 +1,338 @@
+package com.renter.auth.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.renter.auth.config.AuthMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Holds the realm's signing keys as an immutable snapshot that request threads read without locking.
+ *
+ * The key set is refreshed in the background, on the interval advertised by the certs endpoint's
+ * {@code Cache-Control: max-age} (clamped to the configured bounds) or the default interval when
+ * none is sent. A lookup for a kid missing from the snapshot, e.g. right after Keycloak rotates its
+ * keys, triggers a refresh; concurrent misses share that single fetch.
+ *
+ * So that tokens with made-up kids cannot drive the certs endpoint, such refreshes are started at
+ * most once per unknown-kid refresh interval, and a kid still missing afterwards is remembered as
+ * unknown for a short TTL and answered without fetching. A lookup waits only briefly for the
+ * refresh; if Keycloak is slow the kid is answered as unknown and the refresh carries on in the
+ * background, so a later request finds the key in the snapshot.
+ */
+@Component
+public class JwksKeyRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(JwksKeyRegistry.class);
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final JwksFetcher fetcher;
+    private final Duration refreshInterval;
+    private final Duration minRefreshInterval;
+    private final Duration unknownKidWait;
+    private final long unknownKidRefreshIntervalNanos;
+
+    private final Cache<String, Boolean> unknownKids;
+    private final AtomicLong lastUnknownKidRefresh;
+    private final Counter negativeCacheHits;
+    private final Counter throttledRefreshes;
+    private final Counter unknownKidRefreshes;
+    private final Counter pendingRefreshes;
+
+    private final AtomicReference<KeySnapshot> snapshot = new AtomicReference<>(KeySnapshot.EMPTY);
+    private final AtomicReference<CompletableFuture<KeySnapshot>> inFlight = new AtomicReference<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile ScheduledFuture<?> nextRefresh;
+
+    @Autowired
+    public JwksKeyRegistry(
+            @Value("${keycloak.auth-server-url}") String authServerUrl,
+            @Value("${keycloak.realm}") String realm,
+            @Value("${auth.jwks.refresh-interval:PT10M}") Duration refreshInterval,
+            @Value("${auth.jwks.min-refresh-interval:PT30S}") Duration minRefreshInterval,
+            @Value("${auth.jwks.unknown-kid-wait:PT0.2S}") Duration unknownKidWait,
+            @Value("${auth.jwks.unknown-kid-ttl:PT1M}") Duration unknownKidTtl,
+            @Value("${auth.jwks.unknown-kid-refresh-interval:PT10S}") Duration unknownKidRefreshInterval,
+            RestTemplate keycloakRestTemplate,
+            MeterRegistry meterRegistry
+    ) {
+        this(timed(restTemplateFetcher(keycloakRestTemplate, authServerUrl + "/realms/" + realm + "/protocol/openid-connect/certs"), meterRegistry),
+                refreshInterval, minRefreshInterval, unknownKidWait, unknownKidTtl, unknownKidRefreshInterval, meterRegistry);
+    }
+
+    public JwksKeyRegistry(JwksFetcher fetcher, Duration refreshInterval, Duration minRefreshInterval, Duration unknownKidWait,
+                           Duration unknownKidTtl, Duration unknownKidRefreshInterval, MeterRegistry meterRegistry) {
+        this.fetcher = fetcher;
+        this.refreshInterval = refreshInterval;
+        this.minRefreshInterval = minRefreshInterval;
+        this.unknownKidWait = unknownKidWait;
+        this.unknownKidRefreshIntervalNanos = unknownKidRefreshInterval.toNanos();
+        // The first unknown kid may refresh straight away
+        this.lastUnknownKidRefresh = new AtomicLong(System.nanoTime() - unknownKidRefreshIntervalNanos);
+
+        this.unknownKids = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(unknownKidTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, unknownKids, "jwks.unknown-kids");
+
+        this.negativeCacheHits = unknownKidCounter(meterRegistry, "negative_cached");
+        this.throttledRefreshes = unknownKidCounter(meterRegistry, "throttled");
+        this.unknownKidRefreshes = unknownKidCounter(meterRegistry, "refreshed");
+        this.pendingRefreshes = unknownKidCounter(meterRegistry, "refresh_pending");
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("jwks-refresh-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    @PostConstruct
+    public void start() {
+        refresh();
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Returns the public key for the given kid, or {@code null} if the realm does not publish it.
+     * Known kids are served from the current snapshot; an unknown kid waits at most the unknown-kid
+     * wait on a shared refresh rather than fetching on the request thread, unless it was recently
+     * found missing or the unknown-kid refresh budget is spent.
+     */
+    public RSAPublicKey getKey(String kid) {
+        if (kid == null) {
+            return null;
+        }
+
+        RSAPublicKey key = snapshot.get().keys().get(kid);
+        if (key != null) {
+            return key;
+        }
+
+        if (unknownKids.getIfPresent(kid) != null) {
+            negativeCacheHits.increment();
+            return null;
+        }
+
+        CompletableFuture<KeySnapshot> refresh = unknownKidRefresh();
+        if (refresh == null) {
+            throttledRefreshes.increment();
+            return null;
+        }
+
+        try {
+            key = refresh.get(unknownKidWait.toNanos(), TimeUnit.NANOSECONDS).keys().get(kid);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (TimeoutException e) {
+            // Not remembered as unknown: the refresh is still running and may well bring the key
+            pendingRefreshes.increment();
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("JWKS refresh for unknown kid {} did not complete: {}", kid, e.getMessage());
+            return null;
+        }
+
+        if (key == null) {
+            unknownKids.put(kid, Boolean.TRUE);
+        }
+        return key;
+    }
+
+    /**
+     * Joins the refresh in flight, or starts one if the last unknown-kid refresh is at least the
+     * refresh interval ago. Returns {@code null} when neither applies.
+     */
+    private CompletableFuture<KeySnapshot> unknownKidRefresh() {
+        CompletableFuture<KeySnapshot> running = inFlight.get();
+        if (running != null) {
+            return running;
+        }
+
+        long now = System.nanoTime();
+        long last = lastUnknownKidRefresh.get();
+        if (now - last < unknownKidRefreshIntervalNanos || !lastUnknownKidRefresh.compareAndSet(last, now)) {
+            // Another caller may have just won the slot; share its refresh if so
+            return inFlight.get();
+        }
+        unknownKidRefreshes.increment();
+        return refresh();
+    }
+
+    public KeySnapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Starts a refresh unless one is already running, and returns the future of the running one.
+     */
+    public CompletableFuture<KeySnapshot> refresh() {
+        while (true) {
+            CompletableFuture<KeySnapshot> running = inFlight.get();
+            if (running != null) {
+                return running;
+            }
+
+            CompletableFuture<KeySnapshot> created = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, created)) {
+                try {
+                    scheduler.execute(() -> load(created));
+                } catch (RuntimeException e) {
+                    inFlight.compareAndSet(created, null);
+                    created.completeExceptionally(e);
+                }
+                return created;
+            }
+        }
+    }
+
+    private void load(CompletableFuture<KeySnapshot> result) {
+        Duration delay = minRefreshInterval;
+        KeySnapshot loaded = null;
+        Exception failure = null;
+        try {
+            JwksFetcher.Response response = fetcher.fetch();
+            loaded = KeySnapshot.of(response.keys());
+            snapshot.set(loaded);
+            delay = nextDelay(response.maxAge());
+            log.info("Loaded {} signing keys from JWKS, next refresh in {}", loaded.keys().size(), delay);
+        } catch (Exception e) {
+            failure = e;
+            log.warn("JWKS refresh failed, retrying in {}: {}", delay, e.getMessage());
+        }
+
+        // Cleared before waiters are released, so none of them joins this finished refresh again
+        inFlight.compareAndSet(result, null);
+        scheduleNext(delay);
+        if (failure == null) {
+            result.complete(loaded);
+        } else {
+            result.completeExceptionally(failure);
+        }
+    }
+
+    private void scheduleNext(Duration delay) {
+        ScheduledFuture<?> previous = nextRefresh;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        if (!scheduler.isShutdown()) {
+            nextRefresh = scheduler.schedule(this::refresh, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Duration nextDelay(Duration maxAge) {
+        if (maxAge == null) {
+            return refreshInterval;
+        }
+        if (maxAge.compareTo(minRefreshInterval) < 0) {
+            return minRefreshInterval;
+        }
+        return maxAge.compareTo(refreshInterval) > 0 ? refreshInterval : maxAge;
+    }
+
+    private static Counter unknownKidCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("auth.jwks.unknown-kid")
+                .description("Lookups of kids missing from the key set, by how they were answered")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the {@code max-age} directive, or {@code null} if there is none. Values too large for
+     * a long are read as the longest possible duration; {@link #nextDelay} clamps either way.
+     */
+    static Duration parseMaxAge(String cacheControl) {
+        if (cacheControl == null) {
+            return null;
+        }
+        Matcher matcher = MAX_AGE.matcher(cacheControl);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(matcher.group(1)));
+        } catch (NumberFormatException e) {
+            return Duration.ofSeconds(Long.MAX_VALUE);
+        }
+    }
+
+    private static JwksFetcher restTemplateFetcher(RestTemplate restTemplate, String jwksUrl) {
+        return () -> {
+            ResponseEntity<String> response = restTemplate.getForEntity(jwksUrl, String.class);
+            JWKSet keys = JWKSet.parse(response.getBody());
+            return new JwksFetcher.Response(keys, parseMaxAge(response.getHeaders().getCacheControl()));
+        };
+    }
+
+    private static JwksFetcher timed(JwksFetcher fetcher, MeterRegistry meterRegistry) {
+        return () -> {
+            long start = System.nanoTime();
+            String outcome = AuthMetrics.SUCCESS;
+            try {
+                return fetcher.fetch();
+            } catch (Exception e) {
+                outcome = AuthMetrics.outcome(e);
+                throw e;
+            } finally {
+                AuthMetrics.stageTimer(meterRegistry, "jwks_fetch", outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    /**
+     * Immutable view of the realm's RSA signing keys by kid.
+     */
+    public record KeySnapshot(Map<String, RSAPublicKey> keys, long fetchedAtMillis) {
+
+        static final KeySnapshot EMPTY = new KeySnapshot(Map.of(), 0);
+
+        static KeySnapshot of(JWKSet jwkSet) throws Exception {
+            Map<String, RSAPublicKey> keys = new HashMap<>();
+            for (JWK jwk : jwkSet.getKeys()) {
+                if (jwk instanceof RSAKey rsaKey && jwk.getKeyID() != null
+                        && (jwk.getKeyUse() == null || KeyUse.SIGNATURE.equals(jwk.getKeyUse()))) {
+                    keys.put(jwk.getKeyID(), rsaKey.toRSAPublicKey());
+                }
+            }
+            return new KeySnapshot(Map.copyOf(keys), System.currentTimeMillis());
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package com.renter.auth.security;
 
-import com.renter.auth.controller.AuthController;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -14,7 +15,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
 import java.util.Map;
 
 @Component
@@ -24,6 +26,17 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(JwtAuthFilter.class);
 
+    // 401 bodies are built once per reason so a burst of bad tokens costs no serialization
+    private static final Map<TokenRejectionReason, byte[]> REJECTION_BODIES = new EnumMap<>(TokenRejectionReason.class);
+
+    static {
+        for (TokenRejectionReason reason : TokenRejectionReason.values()) {
+            String body = "{\"status\":401,\"error\":\"Unauthorized\",\"reason\":\"" + reason.getCode()
+                    + "\",\"message\":\"Invalid or expired token: " + reason.getDescription() + "\"}";
+            REJECTION_BODIES.put(reason, body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     public JwtAuthFilter(JwtUtils jwtUtils) {
         this.jwtUtils = jwtUtils;
     }
@@ -34,25 +47,31 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")){
             String token = authHeader.substring(7);
-            try {
-
-                Map<String, Object> claims = jwtUtils.validateTokenAndGetClaims(token);
-                String keycloakUserId = (String) claims.get("sub");
-                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(keycloakUserId, null, Collections.emptyList());
-
-                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-
 
-            } catch (Exception ex){
-
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                response.getWriter().write("Invalid or expired token: "+ ex.getMessage());
+            TokenValidationResult result = jwtUtils.validate(token);
+            if (result instanceof TokenValidationResult.Rejected rejected) {
+                writeRejection(response, rejected.reason());
                 return;
-
             }
+
+            Map<String, Object> claims = ((TokenValidationResult.Valid) result).claims();
+            AuthenticatedIdentity identity = AuthenticatedIdentity.fromClaims(claims);
+            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(identity, null, identity.authorities());
+
+            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            MDC.put(LoggingContextFilter.SUBJECT_KEY, identity.subject());
         }
         filterChain.doFilter(request,response);
 
     }
+
+    private static void writeRejection(HttpServletResponse response, TokenRejectionReason reason) throws IOException {
+        byte[] body = REJECTION_BODIES.get(reason);
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setHeader("WWW-Authenticate", "Bearer error=\"invalid_token\"");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
 }
@@ -0,0 +1,74 @@
+package com.renter.auth.security;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks the registered claims of a token in one pass: expiry and not-before (with clock skew),
+ * issuer and audience.
+ *
+ * These checks only read already-decoded claims, so {@link JwtUtils} runs them before the
+ * signature check and expired or foreign tokens never reach the RSA verify.
+ */
+@Component
+public class JwtClaimsValidator {
+
+    private final String expectedIssuer;
+    private final Set<String> audiences;
+    private final long clockSkewMillis;
+
+    public JwtClaimsValidator(
+            @Value("${auth.jwt.issuer:${keycloak.auth-server-url}/realms/${keycloak.realm}}") String expectedIssuer,
+            @Value("${auth.jwt.audiences:}") Set<String> audiences,
+            @Value("${auth.jwt.clock-skew:PT30S}") Duration clockSkew
+    ) {
+        this.expectedIssuer = expectedIssuer;
+        this.audiences = Set.copyOf(audiences);
+        this.clockSkewMillis = clockSkew.toMillis();
+    }
+
+    /**
+     * Returns the first failed check, or {@code null} if the claims are acceptable.
+     * A token without an expiry is treated as expired.
+     */
+    public TokenRejectionReason validate(JWTClaimsSet claims) {
+        long now = System.currentTimeMillis();
+
+        Date expirationTime = claims.getExpirationTime();
+        if (expirationTime == null || expirationTime.getTime() + clockSkewMillis <= now) {
+            return TokenRejectionReason.EXPIRED;
+        }
+
+        Date notBeforeTime = claims.getNotBeforeTime();
+        if (notBeforeTime != null && notBeforeTime.getTime() - clockSkewMillis > now) {
+            return TokenRejectionReason.NOT_YET_VALID;
+        }
+
+        if (!expectedIssuer.equals(claims.getIssuer())) {
+            return TokenRejectionReason.INVALID_ISSUER;
+        }
+
+        if (!audiences.isEmpty() && !hasExpectedAudience(claims)) {
+            return TokenRejectionReason.INVALID_AUDIENCE;
+        }
+        return null;
+    }
+
+    private boolean hasExpectedAudience(JWTClaimsSet claims) {
+        List<String> tokenAudiences = claims.getAudience();
+        for (String audience : tokenAudiences) {
+            if (audiences.contains(audience)) {
+                return true;
+            }
+        }
+        // Keycloak names the client the token was issued to in azp rather than aud
+        Object authorizedParty = claims.getClaim("azp");
+        return authorizedParty instanceof String azp && audiences.contains(azp);
+    }
+}
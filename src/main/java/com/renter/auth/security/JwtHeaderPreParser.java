@@ -0,0 +1,228 @@
+package com.renter.auth.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cheap structural check of a compact JWS before it is handed to nimbus.
+ *
+ * It checks the three-segment shape, the base64url alphabet and the size limits without
+ * allocating, then decodes only the header (into a per-thread buffer) and scans it for the
+ * top-level {@code alg} and {@code kid}. Garbage, oversized tokens and tokens signed with an
+ * algorithm we do not accept are turned away before the payload is decoded or any JSON is parsed.
+ */
+@Component
+public class JwtHeaderPreParser {
+
+    private static final byte[] ALG = "alg".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KID = "kid".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int[] BASE64URL = new int[128];
+
+    static {
+        Arrays.fill(BASE64URL, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private final int maxTokenLength;
+    private final int maxHeaderLength;
+    private final List<String> allowedAlgorithms;
+    private final ThreadLocal<byte[]> headerBuffer;
+
+    public JwtHeaderPreParser(
+            @Value("${auth.jwt.max-token-length:8192}") int maxTokenLength,
+            @Value("${auth.jwt.max-header-length:1024}") int maxHeaderLength,
+            @Value("${auth.jwt.allowed-algorithms:RS256}") List<String> allowedAlgorithms
+    ) {
+        this.maxTokenLength = maxTokenLength;
+        this.maxHeaderLength = maxHeaderLength;
+        this.allowedAlgorithms = List.copyOf(allowedAlgorithms);
+        this.headerBuffer = ThreadLocal.withInitial(() -> new byte[maxHeaderLength * 3 / 4 + 3]);
+    }
+
+    /**
+     * Returns the token's algorithm and key ID, or {@code null} if the token is malformed, too large,
+     * has no kid or uses an algorithm that is not allowed.
+     */
+    public JwtHeader preParse(String token) {
+        int length = token.length();
+        if (length == 0 || length > maxTokenLength) {
+            return null;
+        }
+
+        int firstDot = -1;
+        int secondDot = -1;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                if (firstDot < 0) {
+                    firstDot = i;
+                } else if (secondDot < 0) {
+                    secondDot = i;
+                } else {
+                    return null;
+                }
+            } else if (c >= 128 || BASE64URL[c] < 0) {
+                return null;
+            }
+        }
+        if (firstDot <= 0 || firstDot > maxHeaderLength || secondDot < 0
+                || secondDot == firstDot + 1 || secondDot == length - 1) {
+            return null;
+        }
+
+        byte[] json = headerBuffer.get();
+        int jsonLength = decode(token, firstDot, json);
+        return jsonLength < 0 ? null : scanHeader(json, jsonLength);
+    }
+
+    private static int decode(String token, int end, byte[] out) {
+        if (end % 4 == 1) {
+            return -1;
+        }
+        int written = 0;
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < end; i++) {
+            bits = (bits << 6) | BASE64URL[token.charAt(i)];
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                out[written++] = (byte) (bits >> bitCount);
+                bits &= (1 << bitCount) - 1;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Finds the string values of the top-level "alg" and "kid" members. Escaped strings are not
+     * needed for either member in the tokens we accept, so they are treated as malformed.
+     */
+    private JwtHeader scanHeader(byte[] json, int length) {
+        int i = skipWhitespace(json, 0, length);
+        if (i >= length || json[i] != '{') {
+            return null;
+        }
+
+        int depth = 0;
+        int algStart = -1, algEnd = -1, kidStart = -1, kidEnd = -1;
+        while (i < length) {
+            byte b = json[i];
+            if (b == '{' || b == '[') {
+                depth++;
+                i++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                i++;
+            } else if (b == '"') {
+                int keyEnd = stringEnd(json, i + 1, length);
+                if (keyEnd < 0) {
+                    return null;
+                }
+                int next = skipWhitespace(json, keyEnd + 1, length);
+                if (depth != 1 || next >= length || json[next] != ':') {
+                    i = keyEnd + 1;
+                    continue;
+                }
+
+                int valueStart = skipWhitespace(json, next + 1, length);
+                if (valueStart >= length || json[valueStart] != '"') {
+                    i = valueStart;
+                    continue;
+                }
+                int valueEnd = stringEnd(json, valueStart + 1, length);
+                if (valueEnd < 0) {
+                    return null;
+                }
+
+                if (regionEquals(json, i + 1, keyEnd, ALG)) {
+                    if (algStart >= 0) {
+                        return null;
+                    }
+                    algStart = valueStart + 1;
+                    algEnd = valueEnd;
+                } else if (regionEquals(json, i + 1, keyEnd, KID)) {
+                    if (kidStart >= 0) {
+                        return null;
+                    }
+                    kidStart = valueStart + 1;
+                    kidEnd = valueEnd;
+                }
+                i = valueEnd + 1;
+            } else {
+                i++;
+            }
+        }
+
+        if (depth != 0 || algStart < 0 || kidStart < 0 || kidEnd == kidStart) {
+            return null;
+        }
+
+        String alg = allowedAlgorithm(json, algStart, algEnd);
+        if (alg == null) {
+            return null;
+        }
+        return new JwtHeader(alg, new String(json, kidStart, kidEnd - kidStart, StandardCharsets.US_ASCII));
+    }
+
+    private String allowedAlgorithm(byte[] json, int start, int end) {
+        for (String allowed : allowedAlgorithms) {
+            if (allowed.length() != end - start) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < allowed.length() && matches; i++) {
+                matches = json[start + i] == allowed.charAt(i);
+            }
+            if (matches) {
+                return allowed;
+            }
+        }
+        return null;
+    }
+
+    private static int stringEnd(byte[] json, int from, int length) {
+        for (int i = from; i < length; i++) {
+            if (json[i] == '\\') {
+                return -1;
+            }
+            if (json[i] == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] json, int from, int length) {
+        int i = from;
+        while (i < length && (json[i] == ' ' || json[i] == '\t' || json[i] == '\n' || json[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean regionEquals(byte[] json, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (json[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The header members needed to pick a verifier before the token is fully parsed.
+     */
+    public record JwtHeader(String alg, String kid) {}
+}
@@ -1,129 +1,148 @@
 package com.renter.auth.security;
 
-import com.nimbusds.jose.crypto.RSASSAVerifier;
-import com.nimbusds.jose.jwk.JWK;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
-import org.springframework.beans.factory.annotation.Value;
+import com.renter.auth.config.AuthMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.net.URL;
-import java.net.URLConnection;
-import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtils {
 
-    private final String jwksUrl;
-    private final Map<String, RSAPublicKey> keyCache = new ConcurrentHashMap<>();
-    private JWKSet jwkSet;
-    private long lastFetchTime = 0;
-    private static final long CACHE_VALIDITY_MS = 3600000; // 1 hour
-
-    public JwtUtils(
-            @Value("${keycloak.auth-server-url}") String authServerUrl,
-            @Value("${keycloak.realm}") String realm
-    ){
-        this.jwksUrl = authServerUrl + "/realms/" + realm + "/protocol/openid-connect/certs";
-        System.out.println("------------>>>JWKS URL: " + this.jwksUrl);
-        System.out.println("JwtUtils initialized. JWKS will be fetched on first token validation.");
+    private static final Logger log = LoggerFactory.getLogger(JwtUtils.class);
+
+    private final JwtHeaderPreParser headerPreParser;
+    private final JwtVerifierRegistry verifierRegistry;
+    private final JwtClaimsValidator claimsValidator;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final Map<TokenRejectionReason, Counter> rejectionCounters = new EnumMap<>(TokenRejectionReason.class);
+
+    // Stage timers are registered up front so the request path only reads the clock
+    private final Timer parseSuccessTimer;
+    private final Timer parseMalformedTimer;
+    private final Timer keyFoundTimer;
+    private final Timer keyUnknownTimer;
+    private final Timer verifyValidTimer;
+    private final Timer verifyInvalidTimer;
+
+    public JwtUtils(JwtHeaderPreParser headerPreParser, JwtVerifierRegistry verifierRegistry,
+                    JwtClaimsValidator claimsValidator, VerifiedTokenCache verifiedTokenCache,
+                    MeterRegistry meterRegistry){
+        this.headerPreParser = headerPreParser;
+        this.verifierRegistry = verifierRegistry;
+        this.claimsValidator = claimsValidator;
+        this.verifiedTokenCache = verifiedTokenCache;
+
+        for (TokenRejectionReason reason : TokenRejectionReason.values()) {
+            rejectionCounters.put(reason, Counter.builder("auth.jwt.rejections")
+                    .description("Bearer tokens rejected, by reason")
+                    .tag("reason", reason.getCode())
+                    .register(meterRegistry));
+        }
+
+        this.parseSuccessTimer = AuthMetrics.stageTimer(meterRegistry, "jwt_parse", AuthMetrics.SUCCESS);
+        this.parseMalformedTimer = AuthMetrics.stageTimer(meterRegistry, "jwt_parse", "malformed");
+        this.keyFoundTimer = AuthMetrics.stageTimer(meterRegistry, "key_lookup", "found");
+        this.keyUnknownTimer = AuthMetrics.stageTimer(meterRegistry, "key_lookup", "unknown");
+        this.verifyValidTimer = AuthMetrics.stageTimer(meterRegistry, "jwt_verify", "valid");
+        this.verifyInvalidTimer = AuthMetrics.stageTimer(meterRegistry, "jwt_verify", "invalid");
     }
 
-    public Map<String, Object> validateTokenAndGetClaims(String token) throws Exception {
+    /**
+     * Validates a bearer token without throwing: returns the verified claims, or the reason the
+     * token was rejected.
+     */
+    public TokenValidationResult validate(String token) {
+        // Structure, size, alg and kid are checked before anything is fully decoded
+        JwtHeaderPreParser.JwtHeader header = headerPreParser.preParse(token);
+        if (header == null) {
+            return reject(TokenRejectionReason.MALFORMED);
+        }
+
+        // The kid is checked before the cache, so tokens of a key dropped from the JWKS are rejected
+        long start = System.nanoTime();
+        JWSVerifier verifier = verifierRegistry.getVerifier(header.kid());
+        if (verifier == null) {
+            record(keyUnknownTimer, start);
+            return reject(TokenRejectionReason.UNKNOWN_KEY);
+        }
+        record(keyFoundTimer, start);
+
+        Map<String, Object> cachedClaims = verifiedTokenCache.get(token, verifier);
+        if (cachedClaims != null) {
+            return TokenValidationResult.valid(cachedClaims);
+        }
+
+        start = System.nanoTime();
+        SignedJWT signedJWT;
+        JWTClaimsSet claimsSet;
         try {
-            System.out.println("Validating token...");
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            String kid = signedJWT.getHeader().getKeyID();
-            System.out.println("Token kid: " + kid);
-            
-            RSAPublicKey publicKey = getPublicKey(kid);
-
-            if (publicKey == null){
-                throw new IllegalStateException("Public key not found for kid: "+ kid);
-            }
-
-            if (!signedJWT.verify(new RSASSAVerifier(publicKey))){
-                throw new IllegalStateException("Invalid JWT signature");
-            }
-
-            return signedJWT.getJWTClaimsSet().getClaims();
-        } catch (Exception e) {
-            System.err.println("ERROR validating token: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+            signedJWT = SignedJWT.parse(token);
+            claimsSet = signedJWT.getJWTClaimsSet();
+        } catch (ParseException e) {
+            record(parseMalformedTimer, start);
+            return reject(TokenRejectionReason.MALFORMED);
+        }
+        record(parseSuccessTimer, start);
+        if (!header.kid().equals(signedJWT.getHeader().getKeyID())
+                || !header.alg().equals(signedJWT.getHeader().getAlgorithm().getName())) {
+            return reject(TokenRejectionReason.MALFORMED);
+        }
+
+        // Cheap claim checks first so expired or foreign tokens never pay for the RSA verify
+        TokenRejectionReason claimsRejection = claimsValidator.validate(claimsSet);
+        if (claimsRejection != null) {
+            return reject(claimsRejection);
         }
-    }
 
-    private RSAPublicKey getPublicKey(String kid) throws Exception {
+        start = System.nanoTime();
+        boolean verified;
         try {
-            if (keyCache.containsKey(kid)) {
-                System.out.println("Found key in cache for kid: " + kid);
-                return keyCache.get(kid);
-            }
-
-            System.out.println("Key not in cache, fetching JWKS for kid: " + kid);
-            
-            // Fetch JWKS if not cached or cache expired
-            if (jwkSet == null || System.currentTimeMillis() - lastFetchTime > CACHE_VALIDITY_MS) {
-                System.out.println("Fetching JWKS from: " + jwksUrl);
-                jwkSet = fetchJWKSet();
-                lastFetchTime = System.currentTimeMillis();
-                System.out.println("JWKS fetched successfully");
-            }
-
-            JWK jwk = jwkSet.getKeyByKeyId(kid);
-            System.out.println("Found JWK for kid: " + kid);
-
-            if (jwk instanceof RSAKey rsaKey){
-                RSAPublicKey publicKey = rsaKey.toRSAPublicKey();
-                keyCache.put(kid, publicKey);
-                System.out.println("Cached public key for kid: " + kid);
-                return publicKey;
-            }
-            
-            throw new IllegalStateException("JWK is not an RSA key for kid: " + kid);
-        } catch (Exception e) {
-            System.err.println("ERROR getting public key for kid: " + kid);
-            System.err.println("Exception: " + e.getClass().getName() + " - " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+            verified = signedJWT.verify(verifier);
+        } catch (JOSEException e) {
+            verified = false;
+        }
+        record(verified ? verifyValidTimer : verifyInvalidTimer, start);
+        if (!verified) {
+            return reject(TokenRejectionReason.INVALID_SIGNATURE);
         }
+
+        return TokenValidationResult.valid(
+                verifiedTokenCache.put(token, verifier, claimsSet.getClaims(), claimsSet.getExpirationTime()));
     }
 
-    private JWKSet fetchJWKSet() throws Exception {
-        try {
-            System.out.println("Opening connection to: " + jwksUrl);
-            URL url = new URL(jwksUrl);
-            URLConnection connection = url.openConnection();
-            
-            System.out.println("Setting connection timeouts...");
-            connection.setConnectTimeout(15000);  // 15 seconds
-            connection.setReadTimeout(15000);     // 15 seconds
-            
-            System.out.println("Connecting and loading JWKS...");
-            JWKSet set = JWKSet.load(connection.getInputStream());
-            System.out.println("JWKS loaded successfully with " + set.getKeys().size() + " keys");
-            return set;
-        } catch (java.net.SocketTimeoutException e) {
-            System.err.println("SOCKET TIMEOUT: Connection to Keycloak timed out");
-            System.err.println("URL: " + jwksUrl);
-            System.err.println("Make sure Keycloak is running and accessible from your network");
-            throw new RuntimeException("Keycloak JWKS fetch timed out after 15 seconds. Check network connectivity and Keycloak availability.", e);
-        } catch (java.net.ConnectException e) {
-            System.err.println("CONNECTION ERROR: Cannot connect to Keycloak");
-            System.err.println("URL: " + jwksUrl);
-            System.err.println("Error: " + e.getMessage());
-            throw new RuntimeException("Cannot connect to Keycloak at " + jwksUrl + ". Check if Keycloak is running and the URL is correct.", e);
-        } catch (Exception e) {
-            System.err.println("ERROR fetching JWKS");
-            System.err.println("URL: " + jwksUrl);
-            System.err.println("Error type: " + e.getClass().getName());
-            System.err.println("Message: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Failed to fetch JWKS from Keycloak: " + e.getMessage(), e);
+    /**
+     * Throwing variant of {@link #validate(String)} for callers outside the request filter.
+     */
+    public Map<String, Object> validateTokenAndGetClaims(String token) {
+        TokenValidationResult result = validate(token);
+        if (result instanceof TokenValidationResult.Rejected rejected) {
+            throw new IllegalStateException(rejected.reason().getDescription());
         }
+        return ((TokenValidationResult.Valid) result).claims();
+    }
+
+    // Records the time since start and returns now, the start of the next stage
+    private static long record(Timer timer, long start) {
+        long now = System.nanoTime();
+        timer.record(now - start, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    private TokenValidationResult reject(TokenRejectionReason reason) {
+        rejectionCounters.get(reason).increment();
+        log.debug("Rejected bearer token: {}", reason);
+        return TokenValidationResult.rejected(reason);
     }
-}
\ No newline at end of file
+}
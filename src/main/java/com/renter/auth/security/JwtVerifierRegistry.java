@@ -0,0 +1,55 @@
+package com.renter.auth.security;
+
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import org.springframework.stereotype.Component;
+
+import java.security.interfaces.RSAPublicKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds one signature verifier per key ID and reuses it for every token signed with that key.
+ *
+ * Verifiers are tied to the key instance they were built from, so a kid whose key changes in a
+ * JWKS refresh gets a fresh verifier, and kids that disappear from the key set are pruned.
+ */
+@Component
+public class JwtVerifierRegistry {
+
+    private final JwksKeyRegistry jwksKeyRegistry;
+    private final Map<String, KeyedVerifier> verifiers = new ConcurrentHashMap<>();
+
+    public JwtVerifierRegistry(JwksKeyRegistry jwksKeyRegistry) {
+        this.jwksKeyRegistry = jwksKeyRegistry;
+    }
+
+    /**
+     * Returns the verifier for the given kid, or {@code null} if the realm does not publish that key.
+     */
+    public JWSVerifier getVerifier(String kid) {
+        RSAPublicKey publicKey = jwksKeyRegistry.getKey(kid);
+        if (publicKey == null) {
+            return null;
+        }
+
+        KeyedVerifier cached = verifiers.get(kid);
+        if (cached != null && cached.publicKey() == publicKey) {
+            return cached.verifier();
+        }
+
+        KeyedVerifier created = new KeyedVerifier(publicKey, new RSASSAVerifier(publicKey));
+        verifiers.put(kid, created);
+        pruneRetiredKeys();
+        return created.verifier();
+    }
+
+    private void pruneRetiredKeys() {
+        Map<String, RSAPublicKey> current = jwksKeyRegistry.snapshot().keys();
+        if (verifiers.size() > current.size()) {
+            verifiers.keySet().retainAll(current.keySet());
+        }
+    }
+
+    private record KeyedVerifier(RSAPublicKey publicKey, JWSVerifier verifier) {}
+}
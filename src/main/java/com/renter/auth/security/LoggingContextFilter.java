@@ -0,0 +1,52 @@
+package com.renter.auth.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Puts a request ID into the logging context for the whole request and echoes it in the
+ * response. A caller-supplied {@code X-Request-Id} is kept when it is short and plain, so
+ * logs can be correlated across services; otherwise a random one is generated.
+ *
+ * The authenticated subject is added to the same context by {@link JwtAuthFilter}; both are
+ * cleared here once the request completes.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LoggingContextFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String REQUEST_ID_KEY = "requestId";
+    public static final String SUBJECT_KEY = "subject";
+
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId == null || !VALID_REQUEST_ID.matcher(requestId).matches()) {
+            // Not a UUID: randomUUID draws from the shared SecureRandom on every request
+            requestId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+
+        MDC.put(REQUEST_ID_KEY, requestId);
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(REQUEST_ID_KEY);
+            MDC.remove(SUBJECT_KEY);
+        }
+    }
+}
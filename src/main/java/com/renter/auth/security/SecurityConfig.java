@@ -1,5 +1,7 @@
 package com.renter.auth.security;
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,10 +16,13 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
+    private final int managementPort;
 
-    public SecurityConfig(JwtAuthFilter jwtAuthFilter){
+    public SecurityConfig(JwtAuthFilter jwtAuthFilter,
+                          @Value("${management.server.port:-1}") int managementPort){
 
         this.jwtAuthFilter = jwtAuthFilter;
+        this.managementPort = managementPort;
 
     }
 
@@ -27,7 +32,13 @@ public class SecurityConfig {
         http.csrf(csrf -> csrf.disable())
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/auth/register", "/api/auth/login", "/api/auth/health","/api/auth/current").permitAll()
+                        .requestMatchers("/api/auth/register", "/api/auth/login", "/api/auth/refresh", "/api/auth/health","/api/auth/current").permitAll()
+                        .requestMatchers("/api/auth/register/*/status").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Scrapes are only let through on the internal management port, never the public one
+                        .requestMatchers(this::isManagementPortScrape).permitAll()
+                        .requestMatchers("/api/admin/**").hasRole("admin")
+                        .requestMatchers("/api/users/**").hasAnyRole("admin", "support")
                         .anyRequest().authenticated()
                 );
         http.addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
@@ -36,6 +47,11 @@ public class SecurityConfig {
 
     }
 
+    private boolean isManagementPortScrape(HttpServletRequest request) {
+        return managementPort > 0 && request.getLocalPort() == managementPort
+                && "/actuator/prometheus".equals(request.getRequestURI());
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception{
 
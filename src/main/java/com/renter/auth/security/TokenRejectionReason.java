@@ -0,0 +1,27 @@
+package com.renter.auth.security;
+
+/**
+ * Why a bearer token was turned away. Each reason maps to a fixed 401 body in {@link JwtAuthFilter}
+ * and to its own rejection counter.
+ */
+public enum TokenRejectionReason {
+
+    MALFORMED("malformed", "Token is malformed or uses an unsupported algorithm"),
+    UNKNOWN_KEY("unknown_key", "Token is signed with an unknown key"),
+    EXPIRED("expired", "Token has expired"),
+    NOT_YET_VALID("not_yet_valid", "Token is not valid yet"),
+    INVALID_ISSUER("invalid_issuer", "Token was issued by an unexpected issuer"),
+    INVALID_AUDIENCE("invalid_audience", "Token is not intended for this service"),
+    INVALID_SIGNATURE("invalid_signature", "Token signature is invalid");
+
+    private final String code;
+    private final String description;
+
+    TokenRejectionReason(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() { return code; }
+    public String getDescription() { return description; }
+}
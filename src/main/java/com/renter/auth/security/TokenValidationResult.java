@@ -0,0 +1,34 @@
+package com.renter.auth.security;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Outcome of validating a bearer token: either the verified claims or the reason it was rejected.
+ *
+ * Rejections are plain values rather than exceptions, so turning away a flood of bad tokens does
+ * not pay for stack traces. There is one shared {@link Rejected} instance per reason.
+ */
+public sealed interface TokenValidationResult permits TokenValidationResult.Valid, TokenValidationResult.Rejected {
+
+    static Valid valid(Map<String, Object> claims) {
+        return new Valid(claims);
+    }
+
+    static Rejected rejected(TokenRejectionReason reason) {
+        return Rejected.INSTANCES.get(reason);
+    }
+
+    record Valid(Map<String, Object> claims) implements TokenValidationResult {}
+
+    record Rejected(TokenRejectionReason reason) implements TokenValidationResult {
+
+        private static final Map<TokenRejectionReason, Rejected> INSTANCES = new EnumMap<>(TokenRejectionReason.class);
+
+        static {
+            for (TokenRejectionReason reason : TokenRejectionReason.values()) {
+                INSTANCES.put(reason, new Rejected(reason));
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.renter.auth.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jose.JWSVerifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of tokens whose signature has already been verified, so repeat requests with the
+ * same access token skip the parse and RSA verification in {@link JwtUtils}.
+ *
+ * Entries are keyed by the SHA-256 digest of the raw token (the token itself is never held),
+ * carry a deep read-only copy of the claims and expire at the token's {@code exp}. The cache
+ * is bounded both by entry count and by an estimate of the memory the claims occupy.
+ *
+ * Each entry remembers the verifier that checked it and is only served to a caller holding that
+ * same verifier, so once its key leaves the JWKS, or the key behind its kid changes, a cached
+ * token counts for nothing and is checked again.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    static final String CACHE_NAME = "jwt.verified-tokens";
+
+    // Rough per-entry cost of the key, entry record and map/node headers
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    // Decoded claims take a few times the size of their base64 payload once boxed into maps/strings
+    private static final int BYTES_PER_PAYLOAD_CHAR = 4;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final Cache<TokenDigest, Entry> cache;
+
+    public VerifiedTokenCache(
+            @Value("${auth.jwt.cache.max-entries:10000}") long maxEntries,
+            @Value("${auth.jwt.cache.max-memory:32MB}") DataSize maxMemory,
+            MeterRegistry meterRegistry
+    ) {
+        long maxWeight = maxMemory.toBytes();
+        // Every entry weighs at least maxWeight / maxEntries, which keeps the count under maxEntries too
+        int minEntryWeight = (int) Math.max(1, maxWeight / Math.max(1, maxEntries));
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((TokenDigest key, Entry entry) -> Math.max(entry.weight(), minEntryWeight))
+                .expireAfter(new Expiry<TokenDigest, Entry>() {
+                    @Override
+                    public long expireAfterCreate(TokenDigest key, Entry entry, long currentTime) {
+                        return remainingNanos(entry);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(TokenDigest key, Entry entry, long currentTime, long currentDuration) {
+                        return remainingNanos(entry);
+                    }
+
+                    @Override
+                    public long expireAfterRead(TokenDigest key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the claims of a token previously verified by {@code verifier}, or {@code null} if the
+     * token has not been seen, was evicted, has expired or was verified with another key.
+     */
+    public Map<String, Object> get(String token, JWSVerifier verifier) {
+        Entry entry = cache.getIfPresent(digest(token));
+        if (entry == null || entry.verifier() != verifier || entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.claims();
+    }
+
+    /**
+     * Stores the claims of a token that passed verification and returns the read-only copy that
+     * was cached. Tokens without an expiry are not cached, since there is nothing to bound their lifetime.
+     */
+    public Map<String, Object> put(String token, JWSVerifier verifier, Map<String, Object> claims, Date expirationTime) {
+        Map<String, Object> frozen = freeze(claims);
+        if (expirationTime == null || expirationTime.getTime() <= System.currentTimeMillis()) {
+            return frozen;
+        }
+
+        int weight = ENTRY_OVERHEAD_BYTES + payloadLength(token) * BYTES_PER_PAYLOAD_CHAR;
+        cache.put(digest(token), new Entry(verifier, frozen, expirationTime.getTime(), weight));
+        return frozen;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static long remainingNanos(Entry entry) {
+        long remainingMillis = entry.expiresAtMillis() - System.currentTimeMillis();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+    }
+
+    private static int payloadLength(String token) {
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+        return second < 0 ? token.length() : second - first - 1;
+    }
+
+    private static TokenDigest digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        byte[] hash = sha256.digest(token.getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer buffer = ByteBuffer.wrap(hash);
+        return new TokenDigest(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T freeze(T value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>(map.size());
+            map.forEach((k, v) -> copy.put(k, freeze(v)));
+            return (T) Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(v -> copy.add(freeze(v)));
+            return (T) Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    private record TokenDigest(long h0, long h1, long h2, long h3) {}
+
+    private record Entry(JWSVerifier verifier, Map<String, Object> claims, long expiresAtMillis, int weight) {}
+}
@@ -0,0 +1,70 @@
+package com.renter.auth.service;
+
+import com.renter.auth.config.AuthMetrics;
+import com.renter.auth.model.User;
+import com.renter.auth.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads users for {@code @CurrentUser} by Keycloak user ID. Nothing is cached here: lookups go
+ * through the natural-id lookup, so repeat lookups are answered from Hibernate's second-level
+ * cache, and writes through {@link UserService} keep that cache current.
+ *
+ * Concurrent lookups of a user missing from that cache are collapsed: one thread queries the
+ * database while the others wait, then read the user the first load put in the cache. Every
+ * caller gets its own detached instance; none is shared between request threads.
+ */
+@Component
+public class CurrentUserLoader {
+
+    private final UserRepository userRepository;
+    // Whether the load in flight for a Keycloak user ID found the user
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final Timer foundTimer;
+    private final Timer notFoundTimer;
+
+    public CurrentUserLoader(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.foundTimer = AuthMetrics.stageTimer(meterRegistry, "user_lookup", "found");
+        this.notFoundTimer = AuthMetrics.stageTimer(meterRegistry, "user_lookup", "not_found");
+    }
+
+    public Optional<User> load(String keycloakUserId) {
+        CompletableFuture<Boolean> load = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = inFlight.putIfAbsent(keycloakUserId, load);
+        if (existing != null) {
+            // Missing users are not cached, so only a found user is worth reading again
+            return join(existing) ? userRepository.findByKeycloakUserId(keycloakUserId) : Optional.empty();
+        }
+
+        try {
+            long start = System.nanoTime();
+            Optional<User> user = userRepository.findByKeycloakUserId(keycloakUserId);
+            (user.isPresent() ? foundTimer : notFoundTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            load.complete(user.isPresent());
+            return user;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(keycloakUserId, load);
+        }
+    }
+
+    private static boolean join(CompletableFuture<Boolean> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.renter.auth.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.renter.auth.exception.BadRequestException;
+import com.renter.auth.exception.ConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers responses by {@code Idempotency-Key} so client retries are answered from memory
+ * instead of repeating the Keycloak work.
+ *
+ * A duplicate that arrives while the first request is still running waits for its result; one
+ * that arrives later gets the stored response replayed. Reusing a key with a different request
+ * body is rejected. Server errors are not stored, so the client can retry them with the same key.
+ * Only a hash of the request body is kept, never the body (or password) itself.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Entry> entries;
+    private final Duration waitTimeout;
+    private final MeterRegistry meterRegistry;
+
+    public IdempotencyStore(
+            ObjectMapper objectMapper,
+            @Value("${auth.idempotency.max-entries:100000}") long maxEntries,
+            @Value("${auth.idempotency.wait-timeout:PT30S}") Duration waitTimeout,
+            MeterRegistry meterRegistry
+    ) {
+        this.objectMapper = objectMapper;
+        this.waitTimeout = waitTimeout;
+        this.meterRegistry = meterRegistry;
+
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "idempotency-keys");
+    }
+
+    /**
+     * Runs {@code handler} once per {@code (scope, key)} within {@code ttl}. Without a key the
+     * handler simply runs.
+     */
+    public ResponseEntity<?> execute(String scope, String key, Object request, Duration ttl,
+                                     Supplier<ResponseEntity<?>> handler) {
+        if (key == null) {
+            return handler.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+
+        String cacheKey = scope + ':' + key;
+        Entry created = new Entry(fingerprint(request), new CompletableFuture<>(), ttl.toNanos());
+        Entry existing = entries.asMap().putIfAbsent(cacheKey, created);
+
+        if (existing != null) {
+            if (!Arrays.equals(existing.fingerprint(), created.fingerprint())) {
+                count(scope, "mismatch");
+                throw new ConflictException(HEADER + " was already used with a different request");
+            }
+            count(scope, existing.response().isDone() ? "replayed" : "waited");
+            return replay(await(existing.response()));
+        }
+
+        count(scope, "executed");
+        try {
+            ResponseEntity<?> response = handler.get();
+            if (response.getStatusCode().is5xxServerError()) {
+                entries.asMap().remove(cacheKey, created);
+            }
+            created.response().complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            entries.asMap().remove(cacheKey, created);
+            created.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private ResponseEntity<?> await(CompletableFuture<ResponseEntity<?>> response) {
+        try {
+            return response.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("A request with this " + HEADER + " is still in progress");
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this " + HEADER + " is still in progress");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ResponseEntity<?> replay(ResponseEntity<?> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot fingerprint request", e);
+        }
+    }
+
+    private void count(String scope, String outcome) {
+        Counter.builder("auth.idempotency.requests")
+                .description("Requests carrying an Idempotency-Key, by outcome")
+                .tag("endpoint", scope)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private record Entry(byte[] fingerprint, CompletableFuture<ResponseEntity<?>> response, long ttlNanos) {}
+}
@@ -0,0 +1,301 @@
+package com.renter.auth.service;
+
+import com.renter.auth.exception.ServiceUnavailableException;
+import com.renter.auth.model.ProvisioningTask;
+import com.renter.auth.repository.ProvisioningTaskRepository;
+import com.renter.auth.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Works off the Keycloak provisioning outbox in the background.
+ *
+ * Each poll claims up to a batch of due tasks (row locks with SKIP LOCKED, then a lease, so
+ * several instances never work the same task) and creates them in Keycloak with one partial
+ * import. Failures are retried with exponential backoff until {@code max-attempts}. The number
+ * of pending tasks is tracked so registration can shed load with a 503 once the backlog is full.
+ *
+ * A task that fails for good deactivates its local user in the same transaction, since that
+ * user has no Keycloak account; registering the same email again replaces it.
+ */
+@Component
+public class KeycloakProvisioningDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(KeycloakProvisioningDispatcher.class);
+
+    @Autowired
+    private ProvisioningTaskRepository provisioningTaskRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KeycloakService keycloakService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.provisioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auth.provisioning.batch-size:50}")
+    private int batchSize;
+
+    @Value("${auth.provisioning.poll-interval:PT1S}")
+    private Duration pollInterval;
+
+    @Value("${auth.provisioning.lease:PT1M}")
+    private Duration lease;
+
+    @Value("${auth.provisioning.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${auth.provisioning.initial-backoff:PT2S}")
+    private Duration initialBackoff;
+
+    @Value("${auth.provisioning.max-backoff:PT5M}")
+    private Duration maxBackoff;
+
+    @Value("${auth.provisioning.max-backlog:10000}")
+    private long maxBacklog;
+
+    @Value("${auth.provisioning.callback-timeout:PT5S}")
+    private Duration callbackTimeout;
+
+    private final AtomicLong backlog = new AtomicLong();
+
+    private TransactionTemplate transactionTemplate;
+    private RestTemplate callbackRestTemplate;
+    private Timer batchTimer;
+    private Counter provisioned;
+    private Counter retried;
+    private Counter failed;
+
+    private final ScheduledExecutorService scheduler;
+    // Callbacks go to client-owned endpoints, so a slow one must not stall the dispatcher
+    private final ExecutorService callbackExecutor;
+
+    public KeycloakProvisioningDispatcher() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("keycloak-provisioning-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+        CustomizableThreadFactory callbackThreadFactory = new CustomizableThreadFactory("provisioning-callback-");
+        callbackThreadFactory.setDaemon(true);
+        this.callbackExecutor = Executors.newFixedThreadPool(2, callbackThreadFactory);
+    }
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(callbackTimeout);
+        requestFactory.setReadTimeout(callbackTimeout);
+        callbackRestTemplate = new RestTemplate(requestFactory);
+
+        batchTimer = Timer.builder("auth.provisioning.batch")
+                .description("Keycloak provisioning batches, claim to outcome")
+                .register(meterRegistry);
+        provisioned = outcomeCounter("provisioned");
+        retried = outcomeCounter("retried");
+        failed = outcomeCounter("failed");
+        Gauge.builder("auth.provisioning.backlog", backlog, AtomicLong::get)
+                .description("Registrations waiting for their Keycloak account")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            log.info("Keycloak provisioning dispatcher is disabled");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        callbackExecutor.shutdown();
+    }
+
+    /**
+     * Rejects a new registration with a 503 while the outbox backlog is at its limit.
+     */
+    public void checkCapacity() {
+        if (backlog.get() >= maxBacklog) {
+            throw new ServiceUnavailableException("Registration is temporarily unavailable, please retry later",
+                    Math.max(1, pollInterval.toSeconds()) * 5);
+        }
+    }
+
+    public void recordEnqueued() {
+        backlog.incrementAndGet();
+    }
+
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder("auth.provisioning.outcomes")
+                .description("Outbox tasks by provisioning outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void poll() {
+        try {
+            // Keep draining while batches come back full
+            while (!scheduler.isShutdown() && dispatchBatch() == batchSize) {
+                // next batch
+            }
+            backlog.set(provisioningTaskRepository.countByStatus(ProvisioningTask.Status.PENDING));
+        } catch (Exception e) {
+            log.warn("Keycloak provisioning poll failed: {}", e.getMessage());
+        }
+    }
+
+    int dispatchBatch() {
+        List<ProvisioningTask> tasks = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<ProvisioningTask> due = provisioningTaskRepository.findDueForUpdate(
+                    ProvisioningTask.Status.PENDING, now, PageRequest.of(0, batchSize));
+            for (ProvisioningTask task : due) {
+                task.claim(now.plus(lease));
+            }
+            return due;
+        });
+        if (tasks == null || tasks.isEmpty()) {
+            return 0;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<String, KeycloakService.ImportedUser> outcomes = null;
+        String error = null;
+        try {
+            outcomes = keycloakService.importUsers(toRepresentations(tasks));
+        } catch (Exception e) {
+            error = e.getMessage();
+            log.warn("Keycloak provisioning of {} users failed: {}", tasks.size(), error);
+        }
+
+        Instant now = Instant.now();
+        for (ProvisioningTask task : tasks) {
+            applyOutcome(task, outcomes, error, now);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            provisioningTaskRepository.saveAll(tasks);
+            for (ProvisioningTask task : tasks) {
+                if (task.getStatus() == ProvisioningTask.Status.FAILED) {
+                    deactivateUser(task);
+                }
+            }
+        });
+        sample.stop(batchTimer);
+
+        for (ProvisioningTask task : tasks) {
+            if (task.getStatus() != ProvisioningTask.Status.PENDING && task.getCallbackUrl() != null) {
+                notifyCallback(task);
+            }
+        }
+        return tasks.size();
+    }
+
+    private static List<UserRepresentation> toRepresentations(List<ProvisioningTask> tasks) {
+        List<UserRepresentation> users = new ArrayList<>(tasks.size());
+        for (ProvisioningTask task : tasks) {
+            UserRepresentation user = KeycloakService.newUserRepresentation(task.getUsername(), task.getEmail(),
+                    task.getFirstName(), task.getLastName(),
+                    KeycloakService.hashedCredential(task.getCredentialSecret(), task.getCredentialData()));
+            user.setId(task.getKeycloakUserId());
+            users.add(user);
+        }
+        return users;
+    }
+
+    private void applyOutcome(ProvisioningTask task, Map<String, KeycloakService.ImportedUser> outcomes,
+                              String error, Instant now) {
+        KeycloakService.ImportedUser outcome = outcomes == null ? null
+                : outcomes.get(task.getUsername().toLowerCase(Locale.ROOT));
+
+        if (outcome != null && task.getKeycloakUserId().equals(outcome.keycloakUserId())) {
+            // Also covers a retry of a batch whose result was lost after Keycloak created the user
+            task.markProvisioned();
+            provisioned.increment();
+        } else if (outcome != null) {
+            task.markFailed("Username already exists in Keycloak");
+            failed.increment();
+        } else if (task.getAttempts() >= maxAttempts) {
+            task.markFailed(error != null ? error : "Not imported by Keycloak");
+            failed.increment();
+            log.error("Giving up on Keycloak provisioning for user {} after {} attempts", task.getUserId(), task.getAttempts());
+        } else {
+            task.retryAt(now.plus(backoff(task.getAttempts())), error != null ? error : "Not imported by Keycloak");
+            retried.increment();
+        }
+    }
+
+    private void deactivateUser(ProvisioningTask task) {
+        userRepository.findById(task.getUserId()).ifPresent(user -> {
+            user.setIsActive(false);
+            userRepository.save(user);
+        });
+    }
+
+    // Exponential backoff with jitter, so a Keycloak outage does not end in synchronized retries
+    private Duration backoff(int attempts) {
+        long base = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+    }
+
+    private void notifyCallback(ProvisioningTask task) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("userId", task.getUserId());
+        body.put("keycloakUserId", task.getKeycloakUserId());
+        body.put("status", task.getStatus());
+        if (task.getLastError() != null) {
+            body.put("error", task.getLastError());
+        }
+
+        try {
+            callbackExecutor.execute(() -> {
+                try {
+                    callbackRestTemplate.postForEntity(task.getCallbackUrl(), body, Void.class);
+                } catch (Exception e) {
+                    log.warn("Provisioning callback for user {} failed: {}", task.getUserId(), e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Provisioning callback for user {} not sent: {}", task.getUserId(), e.getMessage());
+        }
+    }
+}
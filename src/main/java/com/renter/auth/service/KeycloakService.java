@@ -1,18 +1,44 @@
 package com.renter.auth.service;
 
+import com.renter.auth.config.AuthMetrics;
 import com.renter.auth.dto.TokenInfo;
 import com.renter.auth.dto.TokenResponse;
+import com.renter.auth.exception.BadGatewayException;
+import com.renter.auth.exception.ServiceUnavailableException;
+import com.renter.auth.exception.UnauthorizedException;
+import com.renter.auth.security.JwtUtils;
+import com.renter.auth.security.TokenValidationResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.ws.rs.core.Response;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import org.keycloak.OAuth2Constants;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.resource.*;
 import org.keycloak.representations.adapters.action.GlobalRequestResult;
 import org.keycloak.representations.idm.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
@@ -23,10 +49,20 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
 
 @Service
 public class KeycloakService {
 
+    private static final Logger log = LoggerFactory.getLogger(KeycloakService.class);
+
+    // Keycloak's default pbkdf2-sha256 parameters, so imported hashes verify without a rehash
+    private static final String PASSWORD_HASH_ALGORITHM = "pbkdf2-sha256";
+    private static final int PASSWORD_HASH_ITERATIONS = 27500;
+    private static final int PASSWORD_HASH_KEY_BITS = 512;
+
+    private static final SecureRandom SALT_RANDOM = new SecureRandom();
+
     @Autowired
     private Keycloak keycloak;
 
@@ -42,70 +78,71 @@ public class KeycloakService {
     @Value("${keycloak.client-id}")
     private String clientId;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private JwtUtils jwtUtils;
 
-    public String createUser(String username, String email, String firstName, String lastName, String password) {
-        try {
-            RealmResource realmResource = keycloak.realm(realm);
-
-            UserRepresentation user = new UserRepresentation();
-            user.setUsername(username);
-            user.setEmail(email);
-            user.setFirstName(firstName);
-            user.setLastName(lastName);
-            user.setEnabled(true);
-            user.setEmailVerified(true);
-
-            Response response = realmResource.users().create(user);
-            System.out.println("Create user response status: " + response.getStatus());
-
-            if (response.getStatus() == 201) {
-                String userId = extractUserIdFromResponse(response);
-                System.out.println("User ID extracted: " + userId);
-                setUserPassword(userId, password);
-                System.out.println("Password set successfully");
-                return userId;
-            } else {
-                throw new RuntimeException("Failed to create user. Status: " + response.getStatus());
-            }
+    @Autowired
+    private RestTemplate restTemplate;
 
-        } catch (Exception e) {
-            throw new RuntimeException("Error creating user: " + e.getMessage(), e);
-        }
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Admin API calls in flight at once; further callers wait at most bulkhead-wait, then get a 503
+    @Value("${keycloak.admin.max-concurrent-calls:16}")
+    private int maxConcurrentAdminCalls;
+
+    @Value("${keycloak.admin.bulkhead-wait:PT0.1S}")
+    private Duration adminBulkheadWait;
+
+    private Semaphore adminBulkhead;
+    private Counter adminBulkheadRejections;
+
+    // Remote userinfo answers, kept until the token they were fetched for expires
+    private final Cache<UserInfoKey, TokenInfo> userInfoCache = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfter(new Expiry<UserInfoKey, TokenInfo>() {
+                @Override
+                public long expireAfterCreate(UserInfoKey key, TokenInfo value, long currentTime) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, key.expiresAtMillis() - System.currentTimeMillis()));
+                }
+
+                @Override
+                public long expireAfterUpdate(UserInfoKey key, TokenInfo value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(UserInfoKey key, TokenInfo value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    @PostConstruct
+    public void initAdminBulkhead() {
+        adminBulkhead = new Semaphore(maxConcurrentAdminCalls);
+        Gauge.builder("auth.keycloak.bulkhead.active", adminBulkhead, bulkhead -> maxConcurrentAdminCalls - bulkhead.availablePermits())
+                .description("Keycloak admin API calls in flight")
+                .register(meterRegistry);
+        Gauge.builder("auth.keycloak.bulkhead.max", () -> maxConcurrentAdminCalls)
+                .description("Keycloak admin API calls allowed in flight")
+                .register(meterRegistry);
+        adminBulkheadRejections = Counter.builder("auth.keycloak.bulkhead.rejections")
+                .description("Keycloak admin API calls refused because the bulkhead was full")
+                .register(meterRegistry);
     }
 
-    public String authenticateUser(String username, String password) {
-        try {
-            String tokenUrl = authServerUrl + "/realms/" + realm + "/protocol/openid-connect/token";
-
-            // Prepare form data for token request
-            MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
-            formData.add("grant_type", OAuth2Constants.PASSWORD); // Use PASSWORD grant type for user authentication
-            formData.add("client_id", clientId);
-            formData.add("client_secret", clientSecret);
-            formData.add("username", username);
-            formData.add("password", password);
-
-            // Set headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-
-            HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formData, headers);
-
-            // Make the token request
-            ResponseEntity<TokenResponse> response = restTemplate.postForEntity(
-                    tokenUrl,
-                    request,
-                    TokenResponse.class
-            );
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                TokenResponse tokenResponse = response.getBody();
-                return tokenResponse.getAccessToken();
-            } else {
-                throw new RuntimeException("Authentication failed: Invalid response");
-            }
+    public TokenResponse authenticateUser(String username, String password) {
+        // Prepare form data for token request
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("grant_type", OAuth2Constants.PASSWORD); // Use PASSWORD grant type for user authentication
+        formData.add("client_id", clientId);
+        formData.add("client_secret", clientSecret);
+        formData.add("username", username);
+        formData.add("password", password);
 
+        try {
+            return requestToken("token_grant", formData);
         } catch (HttpClientErrorException e) {
             // Handle specific HTTP errors
             if (e.getStatusCode() == HttpStatus.UNAUTHORIZED) {
@@ -120,7 +157,81 @@ public class KeycloakService {
         }
     }
 
+    /**
+     * Exchanges a refresh token for a new token pair. Unlike the password grant this does no
+     * password hashing on Keycloak's side, so clients should use it instead of logging in again.
+     */
+    public TokenResponse refreshToken(String refreshToken) {
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("grant_type", OAuth2Constants.REFRESH_TOKEN);
+        formData.add("client_id", clientId);
+        formData.add("client_secret", clientSecret);
+        formData.add("refresh_token", refreshToken);
+
+        try {
+            return requestToken("token_refresh", formData);
+        } catch (HttpClientErrorException e) {
+            // Keycloak answers invalid_grant (400) for expired, revoked or foreign refresh tokens
+            throw new UnauthorizedException("Invalid or expired refresh token");
+        } catch (ServiceUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            // 5xx, timeouts and unreadable answers are Keycloak's problem, not the client's token
+            throw new BadGatewayException("Token refresh is temporarily unavailable, please retry", e);
+        }
+    }
+
+    private TokenResponse requestToken(String operation, MultiValueMap<String, String> formData) throws Exception {
+        String tokenUrl = authServerUrl + "/realms/" + realm + "/protocol/openid-connect/token";
+
+        // Set headers
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+
+        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formData, headers);
+
+        // Make the token request
+        ResponseEntity<TokenResponse> response = AuthMetrics.timeKeycloak(meterRegistry, operation,
+                () -> restTemplate.postForEntity(tokenUrl, request, TokenResponse.class));
+
+        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            return response.getBody();
+        } else {
+            throw new RuntimeException("Invalid token response");
+        }
+    }
+
+    /**
+     * Describes the user behind an access token from its locally verified claims. Keycloak's
+     * userinfo endpoint is only called when the token lacks the email or username claims
+     * (e.g. the client scope omits them), and that answer is cached until the token expires.
+     */
     public TokenInfo getTokenInfo(String accessToken) {
+        Map<String, Object> claims;
+        try {
+            claims = jwtUtils.validateTokenAndGetClaims(accessToken);
+        } catch (IllegalStateException e) {
+            // The token expired (or was otherwise rejected) after the filter let it through
+            throw new UnauthorizedException("Invalid or expired access token");
+        }
+
+        TokenInfo localInfo = toTokenInfo(claims);
+        if (localInfo.getEmail() != null && localInfo.getUsername() != null) {
+            return localInfo;
+        }
+
+        return userInfoCache.get(new UserInfoKey(claims), key -> fetchUserInfo(accessToken));
+    }
+
+    /**
+     * Checks an access token locally, against the realm's cached signing keys, without calling
+     * Keycloak.
+     */
+    public boolean validateToken(String accessToken) {
+        return jwtUtils.validate(accessToken) instanceof TokenValidationResult.Valid;
+    }
+
+    private TokenInfo fetchUserInfo(String accessToken) {
         try {
             String tokenInfoUrl = authServerUrl + "/realms/" + realm + "/protocol/openid-connect/userinfo";
 
@@ -129,67 +240,184 @@ public class KeycloakService {
 
             HttpEntity<String> request = new HttpEntity<>(headers);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    tokenInfoUrl,
-                    HttpMethod.GET,
-                    request,
-                    Map.class
-            );
+            ResponseEntity<Map> response = AuthMetrics.timeKeycloak(meterRegistry, "userinfo",
+                    () -> restTemplate.exchange(tokenInfoUrl, HttpMethod.GET, request, Map.class));
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> userInfo = response.getBody();
-                return new TokenInfo(
-                        (String) userInfo.get("sub"), // Keycloak user ID
-                        (String) userInfo.get("email"),
-                        (String) userInfo.get("given_name"),
-                        (String) userInfo.get("family_name"),
-                        (String) userInfo.get("preferred_username")
-                );
+                return toTokenInfo(response.getBody());
             } else {
                 throw new RuntimeException("Failed to get token info");
             }
 
         } catch (Exception e) {
-            throw new RuntimeException("Error getting token info: " + e.getMessage(), e);
+            throw new BadGatewayException("User info is temporarily unavailable, please retry", e);
         }
     }
 
-    public boolean validateToken(String accessToken) {
-        try {
-            getTokenInfo(accessToken);
-            return true;
-        } catch (Exception e) {
-            return false;
+    private static TokenInfo toTokenInfo(Map<String, Object> claims) {
+        return new TokenInfo(
+                (String) claims.get("sub"), // Keycloak user ID
+                (String) claims.get("email"),
+                (String) claims.get("given_name"),
+                (String) claims.get("family_name"),
+                (String) claims.get("preferred_username")
+        );
+    }
+
+    /**
+     * Creates a batch of users, passwords included, with one call to the realm partial-import
+     * endpoint instead of a create plus a reset-password round trip per user. Usernames that
+     * already exist are skipped rather than failing the whole batch.
+     *
+     * @return the outcome per (lower-cased) username
+     */
+    public Map<String, ImportedUser> importUsers(List<UserRepresentation> users) {
+        PartialImportRepresentation partialImport = new PartialImportRepresentation();
+        partialImport.setIfResourceExists(PartialImportRepresentation.Policy.SKIP.name());
+        partialImport.setUsers(users);
+
+        try (Response response = timedAdminCall("partial_import", () -> keycloak.realm(realm).partialImport(partialImport))) {
+            if (response.getStatus() != 200) {
+                throw new RuntimeException("Partial import failed. Status: " + response.getStatus());
+            }
+
+            Map<String, ImportedUser> outcomes = new HashMap<>();
+            for (JsonNode result : response.readEntity(JsonNode.class).path("results")) {
+                if ("USER".equals(result.path("resourceType").asText())) {
+                    outcomes.put(result.path("resourceName").asText().toLowerCase(Locale.ROOT),
+                            new ImportedUser(result.path("id").asText(null), "ADDED".equals(result.path("action").asText())));
+                }
+            }
+            return outcomes;
         }
     }
 
-    private void setUserPassword(String userId, String password) {
-        RealmResource realmResource = keycloak.realm(realm);
+    public static UserRepresentation newUserRepresentation(String username, String email, String firstName,
+                                                           String lastName, String password) {
         CredentialRepresentation credential = new CredentialRepresentation();
         credential.setType(CredentialRepresentation.PASSWORD);
         credential.setValue(password);
         credential.setTemporary(false);
+        return newUserRepresentation(username, email, firstName, lastName, credential);
+    }
 
-        realmResource.users().get(userId).resetPassword(credential);
+    public static UserRepresentation newUserRepresentation(String username, String email, String firstName,
+                                                           String lastName, CredentialRepresentation credential) {
+        UserRepresentation user = new UserRepresentation();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setEnabled(true);
+        user.setEmailVerified(true);
+        user.setCredentials(List.of(credential));
+        return user;
     }
 
-    private String extractUserIdFromResponse(Response response) {
-        String location = response.getHeaderString("Location");
-        return location.substring(location.lastIndexOf('/') + 1);
+    /**
+     * Hashes a password the way Keycloak stores it, so it can be queued and later imported
+     * without the plaintext ever being persisted.
+     */
+    public static HashedPassword hashPassword(String password) {
+        byte[] salt = new byte[16];
+        SALT_RANDOM.nextBytes(salt);
+
+        try {
+            PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, PASSWORD_HASH_ITERATIONS, PASSWORD_HASH_KEY_BITS);
+            byte[] hash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            spec.clearPassword();
+
+            Base64.Encoder base64 = Base64.getEncoder();
+            return new HashedPassword(
+                    "{\"value\":\"" + base64.encodeToString(hash) + "\",\"salt\":\"" + base64.encodeToString(salt) + "\",\"additionalParameters\":{}}",
+                    "{\"hashIterations\":" + PASSWORD_HASH_ITERATIONS + ",\"algorithm\":\"" + PASSWORD_HASH_ALGORITHM + "\",\"additionalParameters\":{}}"
+            );
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 password hashing unavailable", e);
+        }
     }
 
+    public static CredentialRepresentation hashedCredential(String secretData, String credentialData) {
+        CredentialRepresentation credential = new CredentialRepresentation();
+        credential.setType(CredentialRepresentation.PASSWORD);
+        credential.setSecretData(secretData);
+        credential.setCredentialData(credentialData);
+        credential.setTemporary(false);
+        return credential;
+    }
 
-    public void deleteUser(String keycloakUserId) {
+    /**
+     * Keycloak credential JSON for a hashed password: the hash and salt, and the hash parameters.
+     */
+    public record HashedPassword(String secretData, String credentialData) {}
+
+    /**
+     * Result of importing one user: its Keycloak ID and whether it was created (or skipped as existing).
+     */
+    public record ImportedUser(String keycloakUserId, boolean created) {}
+
+    /**
+     * Runs an admin API call that reports failure through its response status inside the
+     * bulkhead, and records it under the given operation.
+     */
+    private Response timedAdminCall(String operation, Supplier<Response> call) {
+        acquireAdminPermit();
+        long start = System.nanoTime();
         try {
-            RealmResource realmResource = keycloak.realm(realm);
+            Response response = call.get();
+            AuthMetrics.recordKeycloak(meterRegistry, operation, AuthMetrics.statusOutcome(response.getStatus()), start);
+            return response;
+        } catch (RuntimeException e) {
+            AuthMetrics.recordKeycloak(meterRegistry, operation, AuthMetrics.outcome(e), start);
+            throw e;
+        } finally {
+            adminBulkhead.release();
+        }
+    }
 
-            realmResource.users().get(keycloakUserId).remove();
+    /**
+     * Runs an admin API call that reports failure by throwing inside the bulkhead, and records
+     * it under the given operation.
+     */
+    private void timedAdminAction(String operation, Runnable action) throws Exception {
+        acquireAdminPermit();
+        try {
+            AuthMetrics.timeKeycloak(meterRegistry, operation, () -> {
+                action.run();
+                return null;
+            });
+        } finally {
+            adminBulkhead.release();
+        }
+    }
 
-        } catch (Exception e) {
-            // Log properly instead of ignoring
-            System.err.println("Failed to delete Keycloak user " + keycloakUserId + ": " + e.getMessage());
+    private void acquireAdminPermit() {
+        try {
+            if (adminBulkhead.tryAcquire(adminBulkheadWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        adminBulkheadRejections.increment();
+        throw new ServiceUnavailableException("Keycloak admin API is saturated, please retry", 1);
+    }
+
+    public void deleteUser(String keycloakUserId) throws Exception {
+        RealmResource realmResource = keycloak.realm(realm);
+
+        timedAdminAction("delete_user", () -> realmResource.users().get(keycloakUserId).remove());
     }
 
+    /**
+     * Identifies one access token by its ID (or subject and issue time when Keycloak sends no jti).
+     */
+    private record UserInfoKey(String subject, String tokenId, long expiresAtMillis) {
 
-}
\ No newline at end of file
+        UserInfoKey(Map<String, Object> claims) {
+            this((String) claims.get("sub"),
+                    claims.get("jti") != null ? String.valueOf(claims.get("jti")) : String.valueOf(claims.get("iat")),
+                    claims.get("exp") instanceof Date exp ? exp.getTime() : 0);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.renter.auth.service;
+
+import com.renter.auth.dto.TokenResponse;
+import com.renter.auth.exception.ServiceUnavailableException;
+import com.renter.auth.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs a user in by running the local user lookup and the Keycloak password grant side by
+ * side, so login latency is the slower of the two rather than their sum.
+ *
+ * Both stages run on a bounded pool; when it is saturated logins are refused with a 503 instead
+ * of queueing without limit, as are logins whose stages miss the login timeout. An unknown user is answered as soon as the lookup finds nothing,
+ * and a failed grant is only reported once the lookup has found the user, so the answer does
+ * not depend on which stage finishes first.
+ *
+ * A stage that is no longer needed is cancelled, which only keeps it from starting: blocking
+ * socket and JDBC reads ignore interrupts, so one already running finishes within its own
+ * timeouts and its result is dropped.
+ */
+@Service
+public class LoginService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginService.class);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private KeycloakService keycloakService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.login.threads:32}")
+    private int threads;
+
+    @Value("${auth.login.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${auth.login.timeout:PT20S}")
+    private Duration timeout;
+
+    private ExecutorService executor;
+    private ThreadPoolExecutor pool;
+    private Timer lookupTimer;
+    private Timer grantTimer;
+
+    @PostConstruct
+    public void start() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("login-");
+        threadFactory.setDaemon(true);
+        pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "login");
+
+        lookupTimer = stageTimer("user_lookup");
+        grantTimer = stageTimer("token_grant");
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Returns the user together with its tokens, or a result without user (and without tokens)
+     * if no local user has this email.
+     */
+    public LoginResult login(String username, String password) throws Exception {
+        ExecutorCompletionService<Object> completion = new ExecutorCompletionService<>(executor);
+        Future<Object> lookup = null;
+        Future<Object> grant = null;
+
+        try {
+            lookup = completion.submit(timed(lookupTimer, () -> userService.findByEmail(username)));
+            grant = completion.submit(timed(grantTimer, () -> keycloakService.authenticateUser(username, password)));
+        } catch (RejectedExecutionException e) {
+            cancel(lookup);
+            throw new ServiceUnavailableException("Too many concurrent logins, please retry", 1);
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            ExecutionException grantFailure = null;
+            for (int done = 0; done < 2; done++) {
+                Future<Object> finished = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (finished == null) {
+                    // Keycloak or the database is slow, not the client's fault; it may retry
+                    log.warn("Login timed out after {}", timeout);
+                    throw new ServiceUnavailableException("Login is taking too long, please retry", 1);
+                }
+
+                if (finished == grant) {
+                    try {
+                        grant.get();
+                    } catch (ExecutionException e) {
+                        // Held until the lookup is done: an unknown user is reported as such either way
+                        grantFailure = e;
+                    }
+                } else if (((Optional<?>) lookup.get()).isEmpty()) {
+                    // Unknown user: the password grant's answer no longer matters
+                    return new LoginResult(null, null);
+                }
+            }
+            if (grantFailure != null) {
+                throw grantFailure;
+            }
+
+            @SuppressWarnings("unchecked")
+            Optional<User> user = (Optional<User>) lookup.get();
+            return new LoginResult(user.get(), (TokenResponse) grant.get());
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            cancel(lookup);
+            cancel(grant);
+        }
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("auth.login.stage")
+                .description("Duration of each login stage; the stages run concurrently")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Stages log under the calling request's ID and subject
+    private static Callable<Object> timed(Timer timer, Callable<Object> stage) {
+        Map<String, String> loggingContext = MDC.getCopyOfContextMap();
+        return () -> {
+            if (loggingContext != null) {
+                MDC.setContextMap(loggingContext);
+            }
+            try {
+                return timer.recordCallable(stage);
+            } finally {
+                MDC.clear();
+            }
+        };
+    }
+
+    private static void cancel(Future<?> future) {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    public record LoginResult(User user, TokenResponse tokens) {}
+}
@@ -0,0 +1,140 @@
+package com.renter.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.renter.auth.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client limits for the endpoints that cost Keycloak work: every login is a password hash
+ * and every registration an admin write. Each endpoint is limited both per client IP and per
+ * username or email, so neither one address nor one targeted account can monopolise Keycloak.
+ *
+ * Each limit is a token bucket of {@code permits} requests per period, bursting up to
+ * {@code permits}, kept as a single theoretical-arrival-time updated by compare-and-set (GCRA).
+ * Buckets live in a bounded map and expire once idle for a period, when they would be full again.
+ */
+@Component
+public class RequestRateLimiter {
+
+    static final String CACHE_NAME = "rate-limit-buckets";
+
+    private final boolean enabled;
+    private final Cache<String, AtomicLong> buckets;
+
+    private final Limit loginPerIp;
+    private final Limit loginPerUsername;
+    private final Limit registerPerIp;
+    private final Limit registerPerEmail;
+
+    public RequestRateLimiter(
+            @Value("${auth.rate-limit.enabled:true}") boolean enabled,
+            @Value("${auth.rate-limit.max-keys:100000}") long maxKeys,
+            @Value("${auth.rate-limit.period:PT1M}") Duration period,
+            @Value("${auth.rate-limit.login.per-ip:60}") int loginPerIp,
+            @Value("${auth.rate-limit.login.per-username:10}") int loginPerUsername,
+            @Value("${auth.rate-limit.register.per-ip:10}") int registerPerIp,
+            @Value("${auth.rate-limit.register.per-email:3}") int registerPerEmail,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(period)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, CACHE_NAME);
+
+        this.loginPerIp = new Limit("login", "ip", loginPerIp, period, meterRegistry);
+        this.loginPerUsername = new Limit("login", "username", loginPerUsername, period, meterRegistry);
+        this.registerPerIp = new Limit("register", "ip", registerPerIp, period, meterRegistry);
+        this.registerPerEmail = new Limit("register", "email", registerPerEmail, period, meterRegistry);
+    }
+
+    /**
+     * @throws TooManyRequestsException if the client or the username is over its login limit
+     */
+    public void checkLogin(String clientIp, String username) {
+        check(loginPerIp, clientIp);
+        check(loginPerUsername, normalize(username));
+    }
+
+    /**
+     * @throws TooManyRequestsException if the client or the email is over its registration limit
+     */
+    public void checkRegister(String clientIp, String email) {
+        check(registerPerIp, clientIp);
+        check(registerPerEmail, normalize(email));
+    }
+
+    private void check(Limit limit, String subject) {
+        if (!enabled || limit.disabled() || subject == null) {
+            return;
+        }
+
+        long waitNanos = limit.acquire(buckets.get(limit.keyPrefix + subject, key -> new AtomicLong(Long.MIN_VALUE)));
+        if (waitNanos > 0) {
+            limit.rejections.increment();
+            throw new TooManyRequestsException("Too many " + limit.endpoint + " attempts, please retry later",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+    }
+
+    private static String normalize(String identity) {
+        return identity == null || identity.isBlank() ? null : identity.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Limit {
+
+        private final String endpoint;
+        private final String keyPrefix;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Counter rejections;
+
+        Limit(String endpoint, String keyType, int permits, Duration period, MeterRegistry meterRegistry) {
+            this.endpoint = endpoint;
+            this.keyPrefix = endpoint + ':' + keyType + ':';
+            this.intervalNanos = permits > 0 ? period.toNanos() / permits : 0;
+            this.burstNanos = period.toNanos();
+            this.rejections = Counter.builder("auth.rate-limit.rejections")
+                    .description("Requests refused by the per-client rate limiter")
+                    .tag("endpoint", endpoint)
+                    .tag("key", keyType)
+                    .register(meterRegistry);
+        }
+
+        boolean disabled() {
+            return intervalNanos == 0;
+        }
+
+        /**
+         * Takes one permit from the bucket, or returns how long until one is available without
+         * taking it.
+         */
+        long acquire(AtomicLong theoreticalArrival) {
+            long now = System.nanoTime();
+            while (true) {
+                long current = theoreticalArrival.get();
+                // A new or idle bucket is full: its next arrival is now
+                long next = (current == Long.MIN_VALUE || current - now < 0 ? now : current) + intervalNanos;
+                long ahead = next - now - burstNanos;
+                if (ahead > 0) {
+                    return ahead;
+                }
+                if (theoreticalArrival.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
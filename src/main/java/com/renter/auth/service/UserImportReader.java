@@ -0,0 +1,148 @@
+package com.renter.auth.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renter.auth.dto.RegisterRequest;
+import com.renter.auth.dto.UserProfileDto;
+import com.renter.auth.model.User;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads import rows lazily, one line at a time, so an import never holds more than the current
+ * chunk in memory. NDJSON lines are {@link RegisterRequest} objects; CSV files start with a header
+ * naming the request fields, with profile fields given by their own names (city, country, ...).
+ *
+ * A row that cannot be parsed is returned with its error instead of stopping the import.
+ */
+public class UserImportReader implements Iterator<UserImportReader.Row> {
+
+    public enum Format { NDJSON, CSV }
+
+    public record Row(long line, RegisterRequest request, String error) {}
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private List<String> csvHeader;
+    private long lineNumber;
+    private Row next;
+
+    public UserImportReader(BufferedReader reader, Format format, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readRow();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    private Row readRow() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && csvHeader == null) {
+                    csvHeader = parseCsvLine(line);
+                    continue;
+                }
+                try {
+                    RegisterRequest request = format == Format.NDJSON
+                            ? objectMapper.readValue(line, RegisterRequest.class)
+                            : fromCsv(parseCsvLine(line));
+                    return new Row(lineNumber, request, null);
+                } catch (Exception e) {
+                    return new Row(lineNumber, null, "Unreadable row: " + e.getMessage());
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private RegisterRequest fromCsv(List<String> values) {
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < csvHeader.size() && i < values.size(); i++) {
+            String value = values.get(i).trim();
+            fields.put(csvHeader.get(i).trim(), value.isEmpty() ? null : value);
+        }
+
+        RegisterRequest request = new RegisterRequest();
+        request.setEmail(fields.get("email"));
+        request.setUsername(fields.get("username"));
+        request.setPassword(fields.get("password"));
+        request.setFirstName(fields.get("firstName"));
+        request.setLastName(fields.get("lastName"));
+        request.setPhoneNumber(fields.get("phoneNumber"));
+        request.setUserType(fields.get("userType") == null ? null : User.UserType.valueOf(fields.get("userType")));
+
+        UserProfileDto profile = new UserProfileDto();
+        profile.setAddressLine1(fields.get("addressLine1"));
+        profile.setAddressLine2(fields.get("addressLine2"));
+        profile.setCity(fields.get("city"));
+        profile.setState(fields.get("state"));
+        profile.setCountry(fields.get("country"));
+        profile.setPostalCode(fields.get("postalCode"));
+        profile.setIdProofType(fields.get("idProofType"));
+        profile.setIdProofNumber(fields.get("idProofNumber"));
+        profile.setEmergencyContactName(fields.get("emergencyContactName"));
+        profile.setEmergencyContactPhone(fields.get("emergencyContactPhone"));
+        request.setProfile(profile);
+        return request;
+    }
+
+    // RFC 4180 fields on a single line: comma separated, optionally double-quoted with "" escapes
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
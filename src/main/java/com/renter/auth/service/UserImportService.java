@@ -0,0 +1,224 @@
+package com.renter.auth.service;
+
+import com.renter.auth.dto.ImportRowResult;
+import com.renter.auth.dto.RegisterRequest;
+import com.renter.auth.model.User;
+import com.renter.auth.model.UserProfile;
+import com.renter.auth.repository.UserProfileRepository;
+import com.renter.auth.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Bulk user import: rows are validated, provisioned in Keycloak with one partial-import call per
+ * chunk and written to {@code users}/{@code user_profiles} as JDBC batches, one transaction per chunk.
+ *
+ * Only one chunk is held at a time and the persistence context is cleared after each, so memory
+ * stays flat however large the input is. If a chunk's database write fails, the Keycloak users
+ * created for it are deleted again.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private KeycloakService keycloakService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${auth.import.chunk-size:100}")
+    private int chunkSize;
+
+    public UserImportService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Imports all rows, handing each chunk's results to {@code sink} (in line order) as soon as
+     * the chunk is done.
+     */
+    public void importUsers(Iterator<UserImportReader.Row> rows, Consumer<List<ImportRowResult>> sink) {
+        List<UserImportReader.Row> chunk = new ArrayList<>(chunkSize);
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == chunkSize) {
+                sink.accept(importChunk(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(importChunk(chunk));
+        }
+    }
+
+    private List<ImportRowResult> importChunk(List<UserImportReader.Row> chunk) {
+        List<ImportRowResult> results = new ArrayList<>(chunk.size());
+        List<PendingUser> pending = validate(chunk, results);
+
+        if (!pending.isEmpty()) {
+            pending = skipRegisteredEmails(pending, results);
+        }
+        if (!pending.isEmpty()) {
+            pending = provisionInKeycloak(pending, results);
+        }
+        if (!pending.isEmpty()) {
+            writeBatch(pending, results);
+        }
+
+        results.sort(Comparator.comparingLong(ImportRowResult::line));
+        return results;
+    }
+
+    private List<PendingUser> validate(List<UserImportReader.Row> chunk, List<ImportRowResult> results) {
+        List<PendingUser> pending = new ArrayList<>(chunk.size());
+        Set<String> emailsInChunk = new HashSet<>();
+
+        for (UserImportReader.Row row : chunk) {
+            RegisterRequest request = row.request();
+            if (row.error() != null) {
+                results.add(ImportRowResult.failed(row.line(), null, row.error()));
+                continue;
+            }
+
+            try {
+                User user = userService.newUser(request);
+                UserProfile profile = userService.newUserProfile(user, request.getProfile());
+                if (!StringUtils.hasText(request.getPassword())) {
+                    throw new IllegalArgumentException("Password is required");
+                }
+                if (!emailsInChunk.add(request.getEmail().toLowerCase(Locale.ROOT))) {
+                    results.add(ImportRowResult.skipped(row.line(), request.getEmail(), "Duplicate email in import"));
+                    continue;
+                }
+                pending.add(new PendingUser(row.line(), request, user, profile));
+            } catch (IllegalArgumentException e) {
+                results.add(ImportRowResult.failed(row.line(), request.getEmail(), e.getMessage()));
+            }
+        }
+        return pending;
+    }
+
+    private List<PendingUser> skipRegisteredEmails(List<PendingUser> pending, List<ImportRowResult> results) {
+        Set<String> registered = new HashSet<>(userRepository.findExistingEmails(
+                pending.stream().map(PendingUser::normalizedEmail).toList()));
+
+        List<PendingUser> remaining = new ArrayList<>(pending.size());
+        for (PendingUser user : pending) {
+            if (registered.contains(user.normalizedEmail())) {
+                results.add(ImportRowResult.skipped(user.line(), user.request().getEmail(), "Email already registered"));
+            } else {
+                remaining.add(user);
+            }
+        }
+        return remaining;
+    }
+
+    private List<PendingUser> provisionInKeycloak(List<PendingUser> pending, List<ImportRowResult> results) {
+        List<UserRepresentation> representations = new ArrayList<>(pending.size());
+        for (PendingUser user : pending) {
+            RegisterRequest request = user.request();
+            // Email doubles as the username, as in /register
+            representations.add(KeycloakService.newUserRepresentation(request.getEmail(), request.getEmail(),
+                    request.getFirstName(), request.getLastName(), request.getPassword()));
+        }
+
+        Map<String, KeycloakService.ImportedUser> outcomes;
+        try {
+            outcomes = keycloakService.importUsers(representations);
+        } catch (Exception e) {
+            log.error("Keycloak partial import failed for {} users: {}", pending.size(), e.getMessage());
+            for (PendingUser user : pending) {
+                results.add(ImportRowResult.failed(user.line(), user.request().getEmail(), "Keycloak import failed: " + e.getMessage()));
+            }
+            return List.of();
+        }
+
+        List<PendingUser> created = new ArrayList<>(pending.size());
+        for (PendingUser user : pending) {
+            KeycloakService.ImportedUser outcome = outcomes.get(user.normalizedEmail());
+            if (outcome == null || outcome.keycloakUserId() == null) {
+                results.add(ImportRowResult.failed(user.line(), user.request().getEmail(), "Not imported by Keycloak"));
+            } else if (!outcome.created()) {
+                results.add(ImportRowResult.skipped(user.line(), user.request().getEmail(), "Username already exists in Keycloak"));
+            } else {
+                user.user().setKeycloakUserId(outcome.keycloakUserId());
+                created.add(user);
+            }
+        }
+        return created;
+    }
+
+    private void writeBatch(List<PendingUser> pending, List<ImportRowResult> results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.saveAll(pending.stream().map(PendingUser::user).toList());
+                userProfileRepository.saveAll(pending.stream().map(PendingUser::profile).toList());
+                entityManager.flush();
+                entityManager.clear();
+            });
+        } catch (Exception e) {
+            log.error("Import batch write failed, removing {} Keycloak users: {}", pending.size(), e.getMessage());
+            for (PendingUser user : pending) {
+                results.add(compensate(user, "Database write failed: " + e.getMessage()));
+            }
+            return;
+        }
+
+        for (PendingUser user : pending) {
+            results.add(ImportRowResult.created(user.line(), user.request().getEmail(),
+                    user.user().getId(), user.user().getKeycloakUserId()));
+        }
+    }
+
+    // Removes the row's Keycloak user again; one that cannot be removed is reported as orphaned
+    private ImportRowResult compensate(PendingUser user, String error) {
+        String keycloakUserId = user.user().getKeycloakUserId();
+        try {
+            keycloakService.deleteUser(keycloakUserId);
+            return ImportRowResult.failed(user.line(), user.request().getEmail(), error);
+        } catch (Exception e) {
+            log.error("Keycloak user {} for import line {} is orphaned: {}", keycloakUserId, user.line(), e.getMessage());
+            return ImportRowResult.orphaned(user.line(), user.request().getEmail(), keycloakUserId,
+                    error + "; Keycloak user could not be removed: " + e.getMessage());
+        }
+    }
+
+    private record PendingUser(long line, RegisterRequest request, User user, UserProfile profile) {
+
+        String normalizedEmail() {
+            return request.getEmail().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.renter.auth.service;
+
+import com.renter.auth.dto.UserSearchPage;
+import com.renter.auth.dto.UserSummary;
+import com.renter.auth.exception.BadRequestException;
+import com.renter.auth.model.User;
+import com.renter.auth.repository.UserRepository;
+import com.renter.auth.repository.UserSpecifications;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * User directory search for support and admin tools.
+ *
+ * Results are ordered newest first by {@code (created_at, id)} and paged by keyset: the cursor
+ * carries the last row's sort key, so every page costs one index range scan no matter how deep
+ * the client has paged.
+ */
+@Service
+public class UserSearchService {
+
+    private static final Sort ORDER = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    // Substring search needs three characters for pg_trgm to use its index
+    private static final int MIN_CONTAINS_LENGTH = 3;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${auth.user-search.max-limit:100}")
+    private int maxLimit;
+
+    @Transactional(readOnly = true)
+    public UserSearchPage search(UserSearchCriteria criteria, String cursor, int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new BadRequestException("limit must be between 1 and " + maxLimit);
+        }
+
+        Specification<User> specification = toSpecification(criteria);
+        KeysetScrollPosition position = cursor == null ? ScrollPosition.keyset() : decodeCursor(cursor);
+
+        Window<User> window = userRepository.findBy(specification,
+                query -> query.sortBy(ORDER).limit(limit).scroll(position));
+
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? encodeCursor(window.getContent().get(window.size() - 1))
+                : null;
+        return new UserSearchPage(window.map(UserSummary::of).getContent(), nextCursor);
+    }
+
+    private static Specification<User> toSpecification(UserSearchCriteria criteria) {
+        Specification<User> specification = Specification.where(null);
+
+        if (StringUtils.hasText(criteria.query())) {
+            specification = specification.and(UserSpecifications.matchesPrefix(criteria.query().trim()));
+        }
+        if (StringUtils.hasText(criteria.contains())) {
+            if (criteria.contains().trim().length() < MIN_CONTAINS_LENGTH) {
+                throw new BadRequestException("contains needs at least " + MIN_CONTAINS_LENGTH + " characters");
+            }
+            specification = specification.and(UserSpecifications.contains(criteria.contains().trim()));
+        }
+        if (StringUtils.hasText(criteria.phone())) {
+            specification = specification.and(UserSpecifications.phoneStartsWith(criteria.phone().trim()));
+        }
+        if (criteria.userType() != null) {
+            specification = specification.and(UserSpecifications.hasUserType(criteria.userType()));
+        }
+        if (criteria.active() != null) {
+            specification = specification.and(UserSpecifications.isActive(criteria.active()));
+        }
+        return specification;
+    }
+
+    private static String encodeCursor(User last) {
+        String key = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static KeysetScrollPosition decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.lastIndexOf('|');
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put("createdAt", ZonedDateTime.parse(key.substring(0, separator)));
+            keys.put("id", UUID.fromString(key.substring(separator + 1)));
+            return ScrollPosition.forward(keys);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Search filters; any may be {@code null}. {@code query} is a prefix of email or first/last
+     * name, {@code contains} a substring of email or full name, {@code phone} a phone prefix.
+     */
+    public record UserSearchCriteria(String query, String contains, String phone, User.UserType userType, Boolean active) {}
+}
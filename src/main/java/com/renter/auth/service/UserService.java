@@ -1,18 +1,28 @@
 package com.renter.auth.service;
 
+import com.renter.auth.dto.MeView;
 import com.renter.auth.dto.RegisterRequest;
 import com.renter.auth.dto.UserProfileDto;
+import com.renter.auth.exception.ConflictException;
+import com.renter.auth.model.ProvisioningTask;
 import com.renter.auth.model.User;
 import com.renter.auth.model.UserProfile;
+import com.renter.auth.repository.ProvisioningTaskRepository;
 import com.renter.auth.repository.UserProfileRepository;
 import com.renter.auth.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+import java.net.URI;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -27,10 +37,88 @@ public class UserService {
     @Autowired
     private UserProfileRepository userProfileRepository;
 
-    @Transactional
-    public User saveUser(RegisterRequest request, String keycloakUserId) throws Exception {
+    @Autowired
+    private ProvisioningTaskRepository provisioningTaskRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    // Origins (scheme://host[:port]) that registration callbacks may be sent to; empty disables callbacks
+    @Value("${auth.provisioning.callback-allowed-origins:}")
+    private List<String> callbackAllowedOrigins;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Registers a user locally and queues its Keycloak account in the same transaction. The
+     * Keycloak user ID is chosen here, so the local row is complete before Keycloak is called.
+     * The password is hashed before the transaction starts, so no connection is held while the
+     * deliberately slow hash runs.
+     */
+    public ProvisioningTask registerUser(RegisterRequest request) {
+        if (!StringUtils.hasText(request.getPassword())) {
+            throw new IllegalArgumentException("Password is required");
+        }
+        String callbackUrl = validateCallbackUrl(request.getCallbackUrl());
+
+        User user = newUser(request);
+        KeycloakService.HashedPassword password = KeycloakService.hashPassword(request.getPassword());
+
+        return transactionTemplate.execute(status -> {
+            // Keycloak would only reject the duplicate username later, in the background; the unique
+            // index on lower(email) rejects registrations that race past this check
+            Optional<User> existing = userRepository.findByEmail(user.getEmail());
+            if (existing.isPresent()) {
+                replaceFailedRegistration(existing.get());
+            }
+            user.setKeycloakUserId(UUID.randomUUID().toString());
+            validateUser(user);
+
+            User savedUser = userRepository.save(user);
+            saveUserProfile(savedUser, request.getProfile());
+
+            // Email doubles as the Keycloak username
+            return provisioningTaskRepository.save(new ProvisioningTask(savedUser, request.getEmail(),
+                    password.secretData(), password.credentialData(), callbackUrl));
+        });
+    }
+
+    /**
+     * Removes a registration whose Keycloak account could never be created, so its email can be
+     * registered again; any other existing user is a conflict.
+     */
+    private void replaceFailedRegistration(User existing) {
+        boolean failed = provisioningTaskRepository.findByUserId(existing.getId())
+                .map(task -> task.getStatus() == ProvisioningTask.Status.FAILED)
+                .orElse(false);
+        if (!failed) {
+            throw new ConflictException("Email already registered");
+        }
+
+        log.info("Replacing failed registration of user {}", existing.getId());
+        userProfileRepository.findByUserId(existing.getId()).ifPresent(userProfileRepository::delete);
+        provisioningTaskRepository.findByUserId(existing.getId()).ifPresent(provisioningTaskRepository::delete);
+        userRepository.delete(existing);
+        // The replacement reuses the email and possibly the phone number, so free them first
+        userRepository.flush();
+    }
+
+    public Optional<ProvisioningTask> findProvisioningTask(UUID userId) {
+        return provisioningTaskRepository.findByUserId(userId);
+    }
+
+    /**
+     * Builds an unsaved user from a registration request and validates its business fields.
+     * The Keycloak user ID is left for the caller to set once the Keycloak account exists.
+     */
+    public User newUser(RegisterRequest request) {
         User user = new User(
-            keycloakUserId,
+            null,
             request.getEmail(),
             request.getFirstName(),
             request.getLastName(),
@@ -43,27 +131,31 @@ public class UserService {
             user.setLastName("LNU");
         }
 
-        // You could add other business validations here
-        validateUser(user);
-
-        UserProfileDto profile = request.getProfile();
-
-       
-        User savedUser = userRepository.save(user);
-        UserProfile savedProfile = this.saveUserProfile(savedUser, profile);
-        return savedUser;
+        validateUserFields(user);
+        return user;
     }
 
     public Optional<User> findByKeycloakUserId(String keycloakUserId) {
         Optional<User> user =  userRepository.findByKeycloakUserId(keycloakUserId);
 
-        log.info("-------->>> User {}", user);
+        log.debug("Lookup of Keycloak user {} found a local user: {}", keycloakUserId, user.isPresent());
         return user;
 
     }
 
     @Transactional
     public UserProfile saveUserProfile(User savedUser, UserProfileDto dto) {
+        return userProfileRepository.save(newUserProfile(savedUser, dto));
+    }
+
+    /**
+     * Builds an unsaved, validated profile for the given user.
+     */
+    public UserProfile newUserProfile(User savedUser, UserProfileDto dto) {
+        if (dto == null) {
+            throw new IllegalArgumentException("UserProfile cannot be null");
+        }
+
         // Update profile fields
         // Add other profile fields as needed
         UserProfile profile = new UserProfile();
@@ -78,9 +170,14 @@ public class UserService {
         profile.setIdProofType(dto.getIdProofType());
         profile.setEmergencyContactName(dto.getEmergencyContactName());
         profile.setEmergencyContactPhone(dto.getEmergencyContactPhone());
-        // Validate and save the updated user
+        // Validate the profile before it is saved
         validateUserProfile(profile);
-        return userProfileRepository.save(profile);
+        return profile;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<MeView> findMeView(String keycloakUserId) {
+        return userRepository.findMeViewByKeycloakUserId(keycloakUserId);
     }
 
     public Optional<User> findByEmail(String email) {
@@ -91,7 +188,38 @@ public class UserService {
         return userRepository.findById(id);
     }
 
+    private String validateCallbackUrl(String callbackUrl) {
+        if (!StringUtils.hasText(callbackUrl)) {
+            return null;
+        }
+
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid callback URL");
+        }
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("Invalid callback URL");
+        }
+
+        String origin = uri.getScheme().toLowerCase() + "://" + uri.getHost().toLowerCase()
+                + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+        if (!callbackAllowedOrigins.contains(origin)) {
+            throw new IllegalArgumentException("Callback URL origin is not allowed");
+        }
+        return callbackUrl;
+    }
+
     private void validateUser(User user) {
+        validateUserFields(user);
+
+        if (!StringUtils.hasText(user.getKeycloakUserId())) {
+            throw new IllegalArgumentException("Keycloak user ID is required");
+        }
+    }
+
+    private void validateUserFields(User user) {
         if (!StringUtils.hasText(user.getEmail())) {
             throw new IllegalArgumentException("Email is required");
         }
@@ -100,10 +228,6 @@ public class UserService {
             throw new IllegalArgumentException("User type is required");
         }
 
-        if (!StringUtils.hasText(user.getKeycloakUserId())) {
-            throw new IllegalArgumentException("Keycloak user ID is required");
-        }
-
         // Add phone number validation if required
         if (user.getUserType() == User.UserType.tenant &&
                 !StringUtils.hasText(user.getPhoneNumber())) {
@@ -0,0 +1,27 @@
+-- V2__create_provisioning_outbox.sql
+-- Outbox of users waiting to be created in Keycloak
+CREATE TABLE IF NOT EXISTS keycloak_provisioning_outbox (
+    id UUID PRIMARY KEY,
+    user_id UUID UNIQUE NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    keycloak_user_id VARCHAR(255) UNIQUE NOT NULL,
+
+    username VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    first_name VARCHAR(100),
+    last_name VARCHAR(100),
+
+    -- Keycloak PBKDF2 credential; cleared once provisioned
+    credential_secret VARCHAR(500),
+    credential_data VARCHAR(500),
+    callback_url VARCHAR(2000),
+
+    status VARCHAR(20) NOT NULL CHECK (status IN ('PENDING', 'PROVISIONED', 'FAILED')),
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(),
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+);
+
+-- Dispatcher polls for due pending rows only
+CREATE INDEX IF NOT EXISTS idx_provisioning_outbox_due ON keycloak_provisioning_outbox(next_attempt_at) WHERE status = 'PENDING';
@@ -0,0 +1,17 @@
+-- V3__user_search_indexes.sql
+-- Indexes behind /api/users/search (see UserSpecifications)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Keyset pagination, newest first
+CREATE INDEX IF NOT EXISTS idx_users_created_at_id ON users (created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_users_type_created_at_id ON users (user_type, created_at DESC, id DESC);
+
+-- Case-insensitive prefix matches (LIKE 'abc%')
+CREATE INDEX IF NOT EXISTS idx_users_email_prefix ON users (lower(email) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_first_name_prefix ON users (lower(first_name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_last_name_prefix ON users (lower(last_name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_phone_prefix ON users (phone_number text_pattern_ops);
+
+-- Substring matches (LIKE '%abc%')
+CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_full_name_trgm ON users USING gin (lower(first_name || ' ' || last_name) gin_trgm_ops);
@@ -0,0 +1,5 @@
+-- V4__users_email_unique.sql
+-- One user per email, ignoring case. Registration checks for an existing user before inserting,
+-- so this index is what stops two concurrent registrations of the same address.
+-- Fails if duplicates already exist; those have to be resolved by hand first.
+CREATE UNIQUE INDEX IF NOT EXISTS idx_users_email_lower_unique ON users (lower(email));
@@ -0,0 +1,6 @@
+-- V5__user_full_name_index.sql
+-- Full-name substring index matching UserSpecifications.contains. The V3 index concatenated the raw
+-- columns, so users without a first or last name had a null full name and never matched.
+DROP INDEX IF EXISTS idx_users_full_name_trgm;
+CREATE INDEX IF NOT EXISTS idx_users_full_name_trgm ON users
+    USING gin (lower(coalesce(first_name, '') || ' ' || coalesce(last_name, '')) gin_trgm_ops);
@@ -0,0 +1,227 @@
+package com.renter.auth.benchmark;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.renter.auth.dto.RegisterRequest;
+import com.renter.auth.dto.UserProfileDto;
+import com.renter.auth.model.User;
+import com.renter.auth.model.UserProfile;
+import com.renter.auth.repository.UserRepository;
+import com.renter.auth.security.*;
+import com.renter.auth.service.CurrentUserLoader;
+import com.renter.auth.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentication hot path with locally generated RSA keys and an in-memory JWKS, so results
+ * depend only on the code under test. Compare runs across commits with the JSON results the
+ * benchmark profile writes to target/jmh-result.json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class AuthHotPathBenchmark {
+
+	private static final String ISSUER = "http://keycloak.bench/realms/bench";
+	private static final String SUBJECT = "3f1c2a4e-0000-7000-8000-000000000001";
+
+	private JwksKeyRegistry keyRegistry;
+	private VerifiedTokenCache tokenCache;
+	private JwtUtils jwtUtils;
+	private JwtAuthFilter filter;
+	private CurrentUserArgumentResolver resolver;
+	private MethodParameter identityParameter;
+	private MethodParameter userParameter;
+	private UserService userService;
+	private RegisterRequest registerRequest;
+
+	private String validToken;
+	private String forgedToken;
+	private String expiredToken;
+
+	@Setup
+	public void setUp() throws Exception {
+		RSAKey signingKey = new RSAKeyGenerator(2048).keyID("kid-1").keyUse(KeyUse.SIGNATURE).generate();
+		JWKSet jwks = new JWKSet(signingKey.toPublicJWK());
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		keyRegistry = new JwksKeyRegistry(() -> new JwksFetcher.Response(jwks, null),
+				Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofSeconds(5),
+				Duration.ofMinutes(1), Duration.ofSeconds(10), meterRegistry);
+		keyRegistry.refresh().get();
+
+		tokenCache = new VerifiedTokenCache(10_000, DataSize.ofMegabytes(32), meterRegistry);
+		jwtUtils = newJwtUtils(keyRegistry, tokenCache);
+		filter = new JwtAuthFilter(jwtUtils);
+
+		validToken = sign(signingKey, claims().build());
+		expiredToken = sign(signingKey, claims().expirationTime(new Date(System.currentTimeMillis() - 600_000)).build());
+		forgedToken = sign(new RSAKeyGenerator(2048).keyID("kid-1").generate(), claims().build());
+
+		UserRepository userRepository = Mockito.mock(UserRepository.class);
+		Mockito.when(userRepository.findByKeycloakUserId(SUBJECT))
+				.thenReturn(Optional.of(new User(SUBJECT, "bench@example.com", "Bench", "User", "9999999999", User.UserType.tenant)));
+		resolver = new CurrentUserArgumentResolver(new CurrentUserLoader(userRepository, meterRegistry));
+		identityParameter = new MethodParameter(Handlers.class.getDeclaredMethod("identity", AuthenticatedIdentity.class), 0);
+		userParameter = new MethodParameter(Handlers.class.getDeclaredMethod("user", User.class), 0);
+
+		AuthenticatedIdentity identity = AuthenticatedIdentity.fromClaims(jwtUtils.validateTokenAndGetClaims(validToken));
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(identity, null, identity.authorities()));
+
+		userService = new UserService();
+		registerRequest = registerRequest();
+	}
+
+	@TearDown
+	public void tearDown() {
+		keyRegistry.stop();
+		SecurityContextHolder.clearContext();
+	}
+
+	/**
+	 * Full parse, claims check and RSA verify: the verified-token cache is emptied before every call.
+	 */
+	@Benchmark
+	public Map<String, Object> validateUncachedToken() {
+		tokenCache.invalidateAll();
+		return jwtUtils.validateTokenAndGetClaims(validToken);
+	}
+
+	@Benchmark
+	public Map<String, Object> validateCachedToken() {
+		return jwtUtils.validateTokenAndGetClaims(validToken);
+	}
+
+	@Benchmark
+	public TokenValidationResult rejectBadSignature() {
+		return jwtUtils.validate(forgedToken);
+	}
+
+	@Benchmark
+	public TokenValidationResult rejectExpired() {
+		return jwtUtils.validate(expiredToken);
+	}
+
+	@Benchmark
+	public MockHttpServletResponse filterValidToken() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/auth/current");
+		request.addHeader("Authorization", "Bearer " + validToken);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
+	@Benchmark
+	public Object resolveIdentity() throws Exception {
+		return resolver.resolveArgument(identityParameter, null, null, null);
+	}
+
+	@Benchmark
+	public Object resolveUser() throws Exception {
+		return resolver.resolveArgument(userParameter, null, null, null);
+	}
+
+	@Benchmark
+	public UserProfile validateRegistration() {
+		User user = userService.newUser(registerRequest);
+		return userService.newUserProfile(user, registerRequest.getProfile());
+	}
+
+	/**
+	 * First token seen for a kid: a fresh verifier registry and token cache per call, so the
+	 * verifier for the key is built before the signature check.
+	 */
+	@State(Scope.Thread)
+	public static class ColdKey {
+
+		JwtUtils jwtUtils;
+
+		@Setup(Level.Invocation)
+		public void setUp(AuthHotPathBenchmark benchmark) {
+			jwtUtils = newJwtUtils(benchmark.keyRegistry,
+					new VerifiedTokenCache(16, DataSize.ofMegabytes(1), new SimpleMeterRegistry()));
+		}
+	}
+
+	@Benchmark
+	public Map<String, Object> validateColdKey(ColdKey coldKey) {
+		return coldKey.jwtUtils.validateTokenAndGetClaims(validToken);
+	}
+
+	private static JwtUtils newJwtUtils(JwksKeyRegistry keyRegistry, VerifiedTokenCache tokenCache) {
+		return new JwtUtils(
+				new JwtHeaderPreParser(8192, 1024, List.of("RS256")),
+				new JwtVerifierRegistry(keyRegistry),
+				new JwtClaimsValidator(ISSUER, Set.of("bench-client"), Duration.ofSeconds(30)),
+				tokenCache,
+				new SimpleMeterRegistry());
+	}
+
+	private static JWTClaimsSet.Builder claims() {
+		return new JWTClaimsSet.Builder()
+				.subject(SUBJECT)
+				.issuer(ISSUER)
+				.audience("account")
+				.claim("azp", "bench-client")
+				.claim("preferred_username", "bench@example.com")
+				.claim("email", "bench@example.com")
+				.claim("realm_access", Map.of("roles", List.of("tenant", "offline_access")))
+				.expirationTime(new Date(System.currentTimeMillis() + 3_600_000));
+	}
+
+	private static String sign(RSAKey key, JWTClaimsSet claims) throws Exception {
+		SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+		jwt.sign(new RSASSASigner(key));
+		return jwt.serialize();
+	}
+
+	private static RegisterRequest registerRequest() {
+		UserProfileDto profile = new UserProfileDto();
+		profile.setAddressLine1("1 Main Street");
+		profile.setCity("Pune");
+		profile.setCountry("India");
+		profile.setIdProofType("PAN");
+
+		RegisterRequest request = new RegisterRequest();
+		request.setEmail("bench@example.com");
+		request.setFirstName("Bench");
+		request.setLastName("User");
+		request.setPhoneNumber("9999999999");
+		request.setUserType(User.UserType.tenant);
+		request.setProfile(profile);
+		return request;
+	}
+
+	static class Handlers {
+		void identity(@CurrentUser AuthenticatedIdentity identity) {}
+
+		void user(@CurrentUser User user) {}
+	}
+}
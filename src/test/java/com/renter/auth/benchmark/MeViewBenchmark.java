@@ -0,0 +1,95 @@
+package com.renter.auth.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renter.auth.AuthServiceApplication;
+import com.renter.auth.model.User;
+import com.renter.auth.model.UserProfile;
+import com.renter.auth.repository.UserProfileRepository;
+import com.renter.auth.repository.UserRepository;
+import com.renter.auth.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code /api/auth/current} read paths against H2: loading the entities and serializing them,
+ * versus the single-select {@code MeView} projection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeViewBenchmark {
+
+	private ConfigurableApplicationContext context;
+	private UserService userService;
+	private UserRepository userRepository;
+	private UserProfileRepository userProfileRepository;
+	private TransactionTemplate readOnlyTransaction;
+	private ObjectMapper objectMapper;
+	private String keycloakUserId;
+
+	@Setup
+	public void setUp() {
+		context = new SpringApplicationBuilder(AuthServiceApplication.class)
+				.profiles("test")
+				.properties("server.port=0", "spring.jpa.show-sql=false", "logging.level.root=WARN", "logging.file.name=target/benchmark.log")
+				.run();
+		userService = context.getBean(UserService.class);
+		userRepository = context.getBean(UserRepository.class);
+		userProfileRepository = context.getBean(UserProfileRepository.class);
+		readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTransaction.setReadOnly(true);
+		// The entity path has to hide the lazy back-reference from Jackson
+		objectMapper = context.getBean(ObjectMapper.class).copy().addMixIn(UserProfile.class, IgnoreUser.class);
+
+		keycloakUserId = UUID.randomUUID().toString();
+		User user = userRepository.save(new User(keycloakUserId, "bench@example.com", "Bench", "User", "9999999999", User.UserType.tenant));
+		UserProfile profile = new UserProfile();
+		profile.setUser(user);
+		profile.setAddressLine1("1 Main Street");
+		profile.setCity("Pune");
+		profile.setCountry("India");
+		userProfileRepository.save(profile);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public byte[] entities() throws Exception {
+		return readOnlyTransaction.execute(status -> {
+			User user = userRepository.findByKeycloakUserId(keycloakUserId).orElseThrow();
+			Map<String, Object> body = new LinkedHashMap<>();
+			body.put("user", user);
+			body.put("profile", userProfileRepository.findByUserId(user.getId()).orElse(null));
+			try {
+				return objectMapper.writeValueAsBytes(body);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	@Benchmark
+	public byte[] projection() throws Exception {
+		return objectMapper.writeValueAsBytes(userService.findMeView(keycloakUserId).orElseThrow());
+	}
+
+	abstract static class IgnoreUser {
+		@JsonIgnore
+		abstract User getUser();
+	}
+}
@@ -0,0 +1,71 @@
+package com.renter.auth.benchmark;
+
+import com.renter.auth.model.UuidV7Generator;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Batched inserts into a uuid-keyed table with a unique uuid index (the users / user_profiles
+ * shape) that already holds {@code prefill} rows, keyed by random v4 versus time-ordered v7 UUIDs.
+ * H2 only approximates Postgres page behaviour; run against the real database for absolute numbers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UuidInsertBenchmark {
+
+	private static final int BATCH = 500;
+
+	@Param({"v4", "v7"})
+	public String generator;
+
+	@Param({"200000"})
+	public int prefill;
+
+	private Supplier<UUID> ids;
+	private Connection connection;
+	private PreparedStatement insert;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws Exception {
+		ids = "v7".equals(generator) ? UuidV7Generator::next : UUID::randomUUID;
+		connection = DriverManager.getConnection("jdbc:h2:mem:uuid-" + generator + ";DB_CLOSE_DELAY=0");
+		connection.setAutoCommit(false);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE keyed (id UUID PRIMARY KEY, ref_id UUID NOT NULL UNIQUE, email VARCHAR(255))");
+		}
+		insert = connection.prepareStatement("INSERT INTO keyed (id, ref_id, email) VALUES (?, ?, ?)");
+		for (int i = 0; i < prefill; i += BATCH) {
+			insertBatch();
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws Exception {
+		insert.close();
+		connection.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void insertBatch() throws Exception {
+		for (int i = 0; i < BATCH; i++) {
+			insert.setObject(1, ids.get());
+			insert.setObject(2, ids.get());
+			insert.setString(3, "user@example.com");
+			insert.addBatch();
+		}
+		insert.executeBatch();
+		connection.commit();
+	}
+}
@@ -0,0 +1,52 @@
+package com.renter.auth.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampledDebugTurboFilterTests {
+
+	private final LoggerContext context = new LoggerContext();
+	private final SampledDebugTurboFilter filter = new SampledDebugTurboFilter();
+
+	@BeforeEach
+	void setUp() {
+		filter.addLoggerPrefix("com.renter.auth");
+		filter.setRate(10);
+	}
+
+	@Test
+	void samplesEnabledDebugEventsFromMatchingLoggers() {
+		Logger logger = context.getLogger("com.renter.auth.security.JwtUtils");
+		logger.setLevel(Level.DEBUG);
+
+		int kept = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (filter.decide(null, logger, Level.DEBUG, "Rejected bearer token: {}", null, null) == FilterReply.NEUTRAL) {
+				kept++;
+			}
+		}
+
+		assertTrue(kept > 700 && kept < 1300, "kept " + kept);
+	}
+
+	@Test
+	void leavesOtherEventsToTheLevelCheck() {
+		Logger logger = context.getLogger("com.renter.auth.service.UserService");
+		logger.setLevel(Level.DEBUG);
+		Logger other = context.getLogger("org.hibernate.SQL");
+		other.setLevel(Level.DEBUG);
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.INFO, "info", null, null));
+			assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.DEBUG, null, null, null));
+			assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.DEBUG, "failed", null, new RuntimeException()));
+			assertEquals(FilterReply.NEUTRAL, filter.decide(null, other, Level.DEBUG, "select", null, null));
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package com.renter.auth.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renter.auth.dto.RegisterRequest;
+import com.renter.auth.dto.TokenInfo;
+import com.renter.auth.dto.TokenResponse;
+import com.renter.auth.dto.UserProfileDto;
+import com.renter.auth.exception.BadGatewayException;
+import com.renter.auth.exception.ServiceUnavailableException;
+import com.renter.auth.exception.UnauthorizedException;
+import com.renter.auth.model.ProvisioningTask;
+import com.renter.auth.model.User;
+import com.renter.auth.repository.ProvisioningTaskRepository;
+import com.renter.auth.security.JwtUtils;
+import com.renter.auth.security.TokenValidationResult;
+import com.renter.auth.service.KeycloakService;
+import com.renter.auth.service.LoginService;
+import com.renter.auth.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthControllerTests {
+
+	@MockBean
+	private KeycloakService keycloakService;
+
+	@MockBean
+	private JwtUtils jwtUtils;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private LoginService loginService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private ProvisioningTaskRepository provisioningTaskRepository;
+
+	private ProvisioningTask task;
+
+	@BeforeEach
+	void setUp() {
+		task = userService.registerUser(registerRequest(UUID.randomUUID() + "@example.com"));
+		task.markFailed("Username already exists in Keycloak");
+		provisioningTaskRepository.save(task);
+	}
+
+	@Test
+	void anonymousCallersOnlySeeTheRegistrationStatus() throws Exception {
+		mockMvc.perform(get("/api/auth/register/{userId}/status", task.getUserId()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.status").value("FAILED"))
+				.andExpect(jsonPath("$.attempts").doesNotExist())
+				.andExpect(jsonPath("$.error").doesNotExist());
+	}
+
+	@Test
+	void otherUsersOnlySeeTheRegistrationStatus() throws Exception {
+		authenticateAs(UUID.randomUUID().toString(), List.of());
+
+		mockMvc.perform(get("/api/auth/register/{userId}/status", task.getUserId())
+						.header("Authorization", "Bearer token"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.attempts").doesNotExist())
+				.andExpect(jsonPath("$.error").doesNotExist());
+	}
+
+	@Test
+	void registeredUserSeesProvisioningDetails() throws Exception {
+		authenticateAs(task.getKeycloakUserId(), List.of());
+
+		mockMvc.perform(get("/api/auth/register/{userId}/status", task.getUserId())
+						.header("Authorization", "Bearer token"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.attempts").value(0))
+				.andExpect(jsonPath("$.error").value("Username already exists in Keycloak"));
+	}
+
+	@Test
+	void supportStaffSeeProvisioningDetails() throws Exception {
+		authenticateAs(UUID.randomUUID().toString(), List.of("support"));
+
+		mockMvc.perform(get("/api/auth/register/{userId}/status", task.getUserId())
+						.header("Authorization", "Bearer token"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.error").value("Username already exists in Keycloak"));
+	}
+
+	@Test
+	void rejectedRefreshTokenIsUnauthorized() throws Exception {
+		when(keycloakService.refreshToken("expired")).thenThrow(new UnauthorizedException("Invalid or expired refresh token"));
+
+		mockMvc.perform(refresh("expired"))
+				.andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.message").value("Invalid or expired refresh token"));
+	}
+
+	@Test
+	void keycloakFailureDuringRefreshIsBadGatewayWithoutDetails() throws Exception {
+		when(keycloakService.refreshToken("refresh")).thenThrow(new BadGatewayException(
+				"Token refresh is temporarily unavailable, please retry", new IllegalStateException("connection reset")));
+
+		mockMvc.perform(refresh("refresh"))
+				.andExpect(status().isBadGateway())
+				.andExpect(jsonPath("$.message").value("Token refresh is temporarily unavailable, please retry"));
+	}
+
+	@Test
+	void saturatedKeycloakDuringRefreshIsServiceUnavailable() throws Exception {
+		when(keycloakService.refreshToken("refresh")).thenThrow(new ServiceUnavailableException("Keycloak is saturated, please retry", 1));
+
+		mockMvc.perform(refresh("refresh"))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string("Retry-After", "1"));
+	}
+
+	@Test
+	void registrationLosingAUniquenessRaceIsAConflict() throws Exception {
+		String phoneNumber = String.valueOf(System.nanoTime() % 10_000_000_000L);
+		RegisterRequest first = registerRequest(UUID.randomUUID() + "@example.com");
+		first.setPhoneNumber(phoneNumber);
+		RegisterRequest second = registerRequest(UUID.randomUUID() + "@example.com");
+		second.setPhoneNumber(phoneNumber);
+
+		mockMvc.perform(register(first)).andExpect(status().isAccepted());
+		mockMvc.perform(register(second))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.error").value("Registration failed: Email or phone number already registered"));
+	}
+
+	@Test
+	void timedOutLoginIsServiceUnavailable() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(keycloakService.authenticateUser(eq(task.getEmail()), any())).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return new TokenResponse();
+		});
+		Duration timeout = (Duration) ReflectionTestUtils.getField(loginService, "timeout");
+		ReflectionTestUtils.setField(loginService, "timeout", Duration.ofMillis(50));
+
+		try {
+			mockMvc.perform(post("/api/auth/login")
+							.contentType("application/json")
+							.content("{\"username\":\"" + task.getEmail() + "\",\"password\":\"s3cret-Pa55\"}"))
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(header().string("Retry-After", "1"))
+					.andExpect(jsonPath("$.message").value("Login is taking too long, please retry"));
+		} finally {
+			ReflectionTestUtils.setField(loginService, "timeout", timeout);
+			release.countDown();
+		}
+	}
+
+	@Test
+	void currentUserIsServedWithItsProfile() throws Exception {
+		authenticateAs(task.getKeycloakUserId(), List.of());
+
+		mockMvc.perform(get("/api/auth/current").header("Authorization", "Bearer token"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id").value(task.getUserId().toString()))
+				.andExpect(jsonPath("$.keycloakUserId").value(task.getKeycloakUserId()))
+				.andExpect(jsonPath("$.email").value(task.getEmail()))
+				.andExpect(jsonPath("$.userType").value("owner"))
+				.andExpect(jsonPath("$.profile.addressLine1").value("1 Main Street"))
+				.andExpect(jsonPath("$.profile.city").value("Pune"));
+	}
+
+	@Test
+	void currentUserWithoutLocalUserIsNotFound() throws Exception {
+		authenticateAs(UUID.randomUUID().toString(), List.of());
+
+		mockMvc.perform(get("/api/auth/current").header("Authorization", "Bearer token"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void tokenInfoDescribesTheCallersToken() throws Exception {
+		String subject = UUID.randomUUID().toString();
+		authenticateAs(subject, List.of());
+		when(keycloakService.getTokenInfo("token"))
+				.thenReturn(new TokenInfo(subject, "jane@example.com", "Jane", "Doe", "jane"));
+
+		mockMvc.perform(get("/api/auth/token-info").header("Authorization", "Bearer token"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.keycloakUserId").value(subject))
+				.andExpect(jsonPath("$.email").value("jane@example.com"));
+	}
+
+	private RequestBuilder register(RegisterRequest request) throws Exception {
+		return post("/api/auth/register")
+				.with(servletRequest -> {
+					servletRequest.setRemoteAddr("10.0.0." + ThreadLocalRandom.current().nextInt(1, 255));
+					return servletRequest;
+				})
+				.contentType("application/json")
+				.content(objectMapper.writeValueAsString(request));
+	}
+
+	private static RequestBuilder refresh(String refreshToken) {
+		return post("/api/auth/refresh")
+				.contentType("application/json")
+				.content("{\"refreshToken\":\"" + refreshToken + "\"}");
+	}
+
+	private void authenticateAs(String subject, List<String> roles) {
+		when(jwtUtils.validate("token")).thenReturn(TokenValidationResult.valid(
+				Map.of("sub", subject, "realm_access", Map.of("roles", roles))));
+	}
+
+	static RegisterRequest registerRequest(String email) {
+		UserProfileDto profile = new UserProfileDto();
+		profile.setAddressLine1("1 Main Street");
+		profile.setCity("Pune");
+		profile.setCountry("India");
+
+		RegisterRequest request = new RegisterRequest();
+		request.setEmail(email);
+		request.setFirstName("Jane");
+		request.setLastName("Doe");
+		request.setPassword("s3cret-Pa55");
+		request.setUserType(User.UserType.owner);
+		request.setProfile(profile);
+		return request;
+	}
+}
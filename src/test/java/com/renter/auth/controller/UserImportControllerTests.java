@@ -0,0 +1,83 @@
+package com.renter.auth.controller;
+
+import com.renter.auth.security.JwtUtils;
+import com.renter.auth.security.TokenValidationResult;
+import com.renter.auth.service.KeycloakService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class UserImportControllerTests {
+
+	@MockBean
+	private KeycloakService keycloakService;
+
+	@MockBean
+	private JwtUtils jwtUtils;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void streamsOneResultPerRowAndASummary() throws Exception {
+		authenticateAs("admin");
+		String created = UUID.randomUUID() + "@example.com";
+		String taken = UUID.randomUUID() + "@example.com";
+		when(keycloakService.importUsers(any())).thenReturn(Map.of(
+				created, new KeycloakService.ImportedUser(UUID.randomUUID().toString(), true),
+				taken, new KeycloakService.ImportedUser(UUID.randomUUID().toString(), false)));
+
+		String csv = "email,password,firstName,userType,addressLine1,city,country\n"
+				+ created + ",pw,Jane,owner,1 Main Street,Pune,India\n"
+				+ taken + ",pw,John,owner,2 Side Road,Pune,India\n"
+				+ "bad@example.com,pw,Bad,landlord,3 Lane,Pune,India\n";
+
+		String body = mockMvc.perform(post("/api/admin/users/import")
+						.header("Authorization", "Bearer token")
+						.contentType("text/csv")
+						.content(csv))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		String[] lines = body.split("\n");
+		assertEquals(4, lines.length);
+		assertTrue(lines[0].contains("\"line\":2") && lines[0].contains("\"status\":\"created\""));
+		assertTrue(lines[1].contains("\"line\":3") && lines[1].contains("\"status\":\"skipped\""));
+		assertTrue(lines[2].contains("\"line\":4") && lines[2].contains("\"status\":\"failed\""));
+		assertTrue(lines[3].contains("\"summary\":true") && lines[3].contains("\"created\":1")
+				&& lines[3].contains("\"skipped\":1") && lines[3].contains("\"failed\":1"));
+	}
+
+	@Test
+	void requiresTheAdminRole() throws Exception {
+		authenticateAs("support");
+
+		mockMvc.perform(post("/api/admin/users/import")
+						.header("Authorization", "Bearer token")
+						.contentType("text/csv")
+						.content("email\n"))
+				.andExpect(status().isForbidden());
+	}
+
+	private void authenticateAs(String role) {
+		when(jwtUtils.validate("token")).thenReturn(TokenValidationResult.valid(
+				Map.of("sub", UUID.randomUUID().toString(), "realm_access", Map.of("roles", List.of(role)))));
+	}
+}
@@ -0,0 +1,242 @@
+package com.renter.auth.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Just enough of Keycloak for the service to run against: the realm's token (password,
+ * refresh_token and client_credentials grants), userinfo and certs endpoints, and the admin
+ * user create, partial import, reset-password and delete calls. Tokens are signed with a key
+ * generated at startup and published on the certs endpoint.
+ *
+ * Each endpoint can be given a fixed latency to stand in for Keycloak's own processing time
+ * (password hashing on the token endpoint, above all). Passwords are not checked; any known
+ * username logs in.
+ */
+public class FakeOidcServer implements AutoCloseable {
+
+    public static final String CLIENT_ID = "loadtest-client";
+    public static final String CLIENT_SECRET = "loadtest-secret";
+
+    private final String realm;
+    private final Map<String, Duration> latencies;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RSAKey signingKey;
+    private final byte[] jwks;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // username (lower-cased) -> user id
+    private final Map<String, String> users = new ConcurrentHashMap<>();
+
+    public FakeOidcServer(String realm, Map<String, Duration> latencies, int threads) throws Exception {
+        this.realm = realm;
+        this.latencies = latencies;
+        this.signingKey = new RSAKeyGenerator(2048).keyID("loadtest-" + UUID.randomUUID()).keyUse(KeyUse.SIGNATURE).generate();
+        this.jwks = new JWKSet(signingKey.toPublicJWK()).toString().getBytes(StandardCharsets.UTF_8);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("fake-oidc-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(threads, threadFactory);
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(executor);
+        String oidc = "/realms/" + realm + "/protocol/openid-connect";
+        server.createContext(oidc + "/token", exchange -> handle(exchange, "token", this::token));
+        server.createContext(oidc + "/userinfo", exchange -> handle(exchange, "userinfo", this::userinfo));
+        server.createContext(oidc + "/certs", exchange -> handle(exchange, "certs", e -> respond(e, 200, jwks)));
+        server.createContext("/admin/realms/" + realm, exchange -> handle(exchange, "admin", this::admin));
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public String issuer() {
+        return baseUrl() + "/realms/" + realm;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange, String endpoint, Handler handler) throws IOException {
+        try (exchange) {
+            Duration latency = latencies.get(endpoint);
+            if (latency != null && !latency.isZero()) {
+                Thread.sleep(latency.toMillis());
+            }
+            handler.handle(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            respond(exchange, 500, ("{\"error\":\"" + e.getClass().getSimpleName() + "\"}").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void token(HttpExchange exchange) throws Exception {
+        Map<String, String> form = parseForm(exchange.getRequestBody());
+        String subject;
+        String username;
+
+        switch (form.getOrDefault("grant_type", "")) {
+            case "password" -> {
+                username = form.getOrDefault("username", "").toLowerCase(Locale.ROOT);
+                subject = users.get(username);
+            }
+            case "refresh_token" -> {
+                JWTClaimsSet refresh = SignedJWT.parse(form.get("refresh_token")).getJWTClaimsSet();
+                subject = refresh.getSubject();
+                username = refresh.getStringClaim("preferred_username");
+            }
+            case "client_credentials" -> {
+                subject = "service-account-" + CLIENT_ID;
+                username = subject;
+            }
+            default -> {
+                respond(exchange, 400, "{\"error\":\"unsupported_grant_type\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        if (subject == null) {
+            respond(exchange, 401, "{\"error\":\"invalid_grant\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("access_token", sign(subject, username, 300));
+        body.put("expires_in", 300);
+        body.put("refresh_expires_in", 1800);
+        body.put("refresh_token", sign(subject, username, 1800));
+        body.put("token_type", "Bearer");
+        body.put("scope", "openid email profile");
+        respondJson(exchange, 200, body);
+    }
+
+    private void userinfo(HttpExchange exchange) throws Exception {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        JWTClaimsSet claims = SignedJWT.parse(authorization.substring("Bearer ".length())).getJWTClaimsSet();
+        respondJson(exchange, 200, Map.of(
+                "sub", claims.getSubject(),
+                "preferred_username", claims.getStringClaim("preferred_username"),
+                "email", claims.getStringClaim("preferred_username")));
+    }
+
+    private void admin(HttpExchange exchange) throws Exception {
+        String path = exchange.getRequestURI().getPath().substring(("/admin/realms/" + realm).length());
+        String method = exchange.getRequestMethod();
+
+        if (method.equals("POST") && path.equals("/partialImport")) {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (JsonNode user : request.path("users")) {
+                String username = user.path("username").asText().toLowerCase(Locale.ROOT);
+                String requestedId = user.hasNonNull("id") ? user.get("id").asText() : UUID.randomUUID().toString();
+                String existing = users.putIfAbsent(username, requestedId);
+                results.add(Map.of(
+                        "action", existing == null ? "ADDED" : "SKIPPED",
+                        "resourceType", "USER",
+                        "resourceName", username,
+                        "id", existing == null ? requestedId : existing));
+            }
+            respondJson(exchange, 200, Map.of("results", results));
+        } else if (method.equals("POST") && path.equals("/users")) {
+            JsonNode user = objectMapper.readTree(exchange.getRequestBody());
+            String id = UUID.randomUUID().toString();
+            if (users.putIfAbsent(user.path("username").asText().toLowerCase(Locale.ROOT), id) != null) {
+                respond(exchange, 409, new byte[0]);
+                return;
+            }
+            exchange.getResponseHeaders().add("Location", baseUrl() + "/admin/realms/" + realm + "/users/" + id);
+            respond(exchange, 201, new byte[0]);
+        } else if (method.equals("PUT") && path.endsWith("/reset-password")) {
+            respond(exchange, 204, null);
+        } else if (method.equals("DELETE") && path.startsWith("/users/")) {
+            users.values().remove(path.substring("/users/".length()));
+            respond(exchange, 204, null);
+        } else {
+            respond(exchange, 404, new byte[0]);
+        }
+    }
+
+    private String sign(String subject, String username, int lifetimeSeconds) throws Exception {
+        long now = System.currentTimeMillis();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .jwtID(UUID.randomUUID().toString())
+                .subject(subject)
+                .issuer(issuer())
+                .audience("account")
+                .claim("azp", CLIENT_ID)
+                .claim("preferred_username", username)
+                .claim("email", username)
+                .claim("realm_access", Map.of("roles", List.of("offline_access", "uma_authorization")))
+                .issueTime(new Date(now))
+                .expirationTime(new Date(now + lifetimeSeconds * 1000L))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(signingKey));
+        return jwt.serialize();
+    }
+
+    private void respondJson(HttpExchange exchange, int status, Object body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        respond(exchange, status, objectMapper.writeValueAsBytes(body));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body == null ? -1 : body.length);
+        if (body != null && body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static Map<String, String> parseForm(InputStream body) throws IOException {
+        Map<String, String> form = new HashMap<>();
+        for (String pair : new String(body.readAllBytes(), StandardCharsets.UTF_8).split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                form.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return form;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws Exception;
+    }
+}
@@ -0,0 +1,314 @@
+package com.renter.auth.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renter.auth.AuthServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end load run: starts {@link FakeOidcServer} and the service on an in-memory H2
+ * database, registers a pool of users, then replays a weighted mix of register, login and
+ * current requests from closed-loop workers and prints throughput and latency percentiles per
+ * endpoint.
+ *
+ * Run with {@code mvn -Ploadtest test -Dloadtest.args="duration=PT60S threads=64"}. Arguments
+ * (defaults in brackets): duration [PT30S], warmup [PT5S], threads [32], users [200],
+ * mix [register:1,login:2,current:7], latency [token:20ms,userinfo:5ms,certs:0ms,admin:10ms].
+ */
+public class LoadTestHarness {
+
+    private static final String REALM = "loadtest";
+    private static final String PASSWORD = "Load-test-1";
+
+    enum Endpoint { register, login, current }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final AtomicInteger userSequence = new AtomicInteger();
+    private String baseUrl;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        new LoadTestHarness().run(options);
+        System.exit(0);
+    }
+
+    private void run(Map<String, String> options) throws Exception {
+        Duration duration = Duration.parse(options.getOrDefault("duration", "PT30S"));
+        Duration warmup = Duration.parse(options.getOrDefault("warmup", "PT5S"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "32"));
+        int userCount = Integer.parseInt(options.getOrDefault("users", "200"));
+        Map<Endpoint, Integer> mix = parseMix(options.getOrDefault("mix", "register:1,login:2,current:7"));
+        Map<String, Duration> latencies = parseLatencies(options.getOrDefault("latency", "token:20ms,userinfo:5ms,certs:0ms,admin:10ms"));
+
+        try (FakeOidcServer oidc = new FakeOidcServer(REALM, latencies, Math.max(16, threads * 2));
+             ConfigurableApplicationContext app = startApplication(oidc)) {
+            baseUrl = "http://127.0.0.1:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+
+            System.out.printf("Seeding %d users...%n", userCount);
+            List<String> tokens = seedUsers(userCount);
+
+            System.out.printf("Warming up for %s, then measuring %s with %d workers, mix %s%n", warmup, duration, threads, mix);
+            drive(threads, warmup, mix, tokens);
+            Map<Endpoint, Recorder> results = drive(threads, duration, mix, tokens);
+            report(results, duration);
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication(FakeOidcServer oidc) {
+        // Passed as command-line arguments so they take precedence over application.properties
+        String[] args = {
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.hikari.maximum-pool-size=32",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--spring.flyway.enabled=false",
+                "--keycloak.auth-server-url=" + oidc.baseUrl(),
+                "--keycloak.realm=" + REALM,
+                "--keycloak.admin-realm=" + REALM,
+                "--keycloak.admin-user=admin",
+                "--keycloak.admin-password=admin",
+                "--keycloak.client-id=" + FakeOidcServer.CLIENT_ID,
+                "--keycloak.client-secret=" + FakeOidcServer.CLIENT_SECRET,
+                "--auth.provisioning.poll-interval=PT0.1S",
+                // All load comes from one address and a small user pool
+                "--auth.rate-limit.enabled=false",
+                "--logging.file.name=target/loadtest/auth-service.log",
+                "--logging.level.root=WARN",
+                "--logging.level.com.renter.auth=WARN",
+                "--logging.level.org.springframework.web=WARN"
+        };
+        return new SpringApplicationBuilder(AuthServiceApplication.class).run(args);
+    }
+
+    /**
+     * Registers the users the login and current traffic runs as, waits for their Keycloak
+     * provisioning and returns one access token per user.
+     */
+    private List<String> seedUsers(int count) throws Exception {
+        List<String> emails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String email = nextEmail();
+            HttpResponse<String> response = register(email);
+            if (response.statusCode() != 202) {
+                throw new IllegalStateException("Seeding registration failed: " + response.statusCode() + " " + response.body());
+            }
+            emails.add(email);
+        }
+
+        List<String> tokens = new ArrayList<>(count);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        for (String email : emails) {
+            HttpResponse<String> response;
+            while ((response = login(email)).statusCode() != 200) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("User " + email + " was not provisioned: " + response.body());
+                }
+                Thread.sleep(100);
+            }
+            tokens.add(objectMapper.readTree(response.body()).path("token").asText());
+        }
+        return tokens;
+    }
+
+    private Map<Endpoint, Recorder> drive(int threads, Duration duration, Map<Endpoint, Integer> mix, List<String> tokens) throws Exception {
+        Endpoint[] weighted = mix.entrySet().stream()
+                .flatMap(e -> java.util.Collections.nCopies(e.getValue(), e.getKey()).stream())
+                .toArray(Endpoint[]::new);
+        long end = System.nanoTime() + duration.toNanos();
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("load-");
+        threadFactory.setDaemon(true);
+        ExecutorService workers = Executors.newFixedThreadPool(threads, threadFactory);
+        List<Future<Map<Endpoint, Recorder>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(workers.submit(() -> {
+                Map<Endpoint, Recorder> recorders = newRecorders();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end) {
+                    Endpoint endpoint = weighted[random.nextInt(weighted.length)];
+                    int user = random.nextInt(tokens.size());
+                    long start = System.nanoTime();
+                    int status;
+                    try {
+                        status = switch (endpoint) {
+                            case register -> register(nextEmail()).statusCode();
+                            case login -> login(userEmail(user)).statusCode();
+                            case current -> current(tokens.get(user)).statusCode();
+                        };
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    recorders.get(endpoint).record(System.nanoTime() - start, status >= 200 && status < 300);
+                }
+                return recorders;
+            }));
+        }
+
+        Map<Endpoint, Recorder> merged = newRecorders();
+        for (Future<Map<Endpoint, Recorder>> future : futures) {
+            future.get().forEach((endpoint, recorder) -> merged.get(endpoint).merge(recorder));
+        }
+        workers.shutdown();
+        return merged;
+    }
+
+    private void report(Map<Endpoint, Recorder> results, Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.println();
+        System.out.printf("%-10s %9s %8s %10s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        results.forEach((endpoint, recorder) -> {
+            long[] sorted = recorder.sorted();
+            System.out.printf("%-10s %9d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint, sorted.length, recorder.errors, sorted.length / seconds,
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        });
+    }
+
+    private HttpResponse<String> register(String email) throws Exception {
+        String body = """
+                {"email":"%s","firstName":"Load","lastName":"Test","password":"%s","userType":"owner",
+                 "profile":{"addressLine1":"1 Load Street","city":"Pune","country":"India"}}
+                """.formatted(email, PASSWORD);
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private HttpResponse<String> login(String email) throws Exception {
+        String body = "{\"username\":\"%s\",\"password\":\"%s\"}".formatted(email, PASSWORD);
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private HttpResponse<String> current(String token) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/current"))
+                .header("Authorization", "Bearer " + token)
+                .GET());
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return httpClient.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private String nextEmail() {
+        return "load-" + userSequence.getAndIncrement() + "@example.com";
+    }
+
+    // Seeded users are the first ones numbered
+    private static String userEmail(int index) {
+        return "load-" + index + "@example.com";
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static Map<Endpoint, Recorder> newRecorders() {
+        Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new Recorder());
+        }
+        return recorders;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Endpoint.valueOf(parts[0].trim()), weight);
+            }
+        }
+        return weights;
+    }
+
+    private static Map<String, Duration> parseLatencies(String latencies) {
+        Map<String, Duration> parsed = new HashMap<>();
+        for (String entry : latencies.split(",")) {
+            String[] parts = entry.split(":");
+            parsed.put(parts[0].trim(), Duration.ofMillis(Long.parseLong(parts[1].trim().replace("ms", ""))));
+        }
+        return parsed;
+    }
+
+    /**
+     * Latencies in nanoseconds of one endpoint; kept raw so the percentiles are exact.
+     */
+    private static final class Recorder {
+
+        private long[] samples = new long[1024];
+        private int size;
+        private long errors;
+
+        void record(long nanos, boolean success) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        void merge(Recorder other) {
+            samples = Arrays.copyOf(samples, Math.max(samples.length, size + other.size));
+            System.arraycopy(other.samples, 0, samples, size, other.size);
+            size += other.size;
+            errors += other.errors;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.renter.auth.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7GeneratorTests {
+
+	@Test
+	void producesVersion7WithCurrentTimestamp() {
+		long before = System.currentTimeMillis();
+		UUID uuid = UuidV7Generator.next();
+
+		assertEquals(7, uuid.version());
+		assertEquals(2, uuid.variant());
+		long millis = uuid.getMostSignificantBits() >>> 16;
+		assertTrue(millis >= before && millis <= System.currentTimeMillis() + 1_000);
+	}
+
+	@Test
+	void keysAreStrictlyIncreasing() {
+		UUID previous = UuidV7Generator.next();
+		for (int i = 0; i < 100_000; i++) {
+			UUID next = UuidV7Generator.next();
+			// Compare as unsigned, the way Postgres orders uuid values
+			assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+			previous = next;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.renter.auth.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.output.ValidateResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the migrations resolve: names, unique versions and readable scripts. They use
+ * PostgreSQL-only features (pg_trgm, gin, expression indexes), so they are not applied here; run
+ * them against PostgreSQL with the flyway-maven-plugin before release.
+ */
+class FlywayMigrationsTests {
+
+	@Test
+	void migrationsResolveInVersionOrder() {
+		Flyway flyway = Flyway.configure()
+				.dataSource("jdbc:h2:mem:flyway-migrations", "sa", "")
+				.locations("classpath:db/migration")
+				.validateMigrationNaming(true)
+				.ignoreMigrationPatterns("*:pending")
+				.load();
+
+		ValidateResult result = flyway.validateWithResult();
+		assertTrue(result.validationSuccessful, () -> String.valueOf(result.invalidMigrations));
+
+		List<String> versions = Arrays.stream(flyway.info().all())
+				.map(MigrationInfo::getVersion)
+				.map(String::valueOf)
+				.toList();
+		assertEquals(List.of("1", "2", "3", "4", "5"), versions);
+	}
+}
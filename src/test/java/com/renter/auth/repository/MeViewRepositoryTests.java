@@ -0,0 +1,93 @@
+package com.renter.auth.repository;
+
+import com.renter.auth.config.HibernateCacheConfig;
+import com.renter.auth.dto.MeView;
+import com.renter.auth.model.User;
+import com.renter.auth.model.UserProfile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@Import(HibernateCacheConfig.class)
+class MeViewRepositoryTests {
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Test
+	void userWithProfileIsProjectedFieldByField() {
+		User user = persistUser();
+		UserProfile profile = new UserProfile();
+		profile.setUser(user);
+		profile.setAddressLine1("1 Main Street");
+		profile.setAddressLine2("Flat 2");
+		profile.setCity("Pune");
+		profile.setState("Maharashtra");
+		profile.setCountry("India");
+		profile.setPostalCode("411001");
+		profile.setIdProofType("PAN");
+		profile.setIdProofVerified(true);
+		profile.setEmergencyContactName("John Doe");
+		profile.setEmergencyContactPhone("9000000001");
+		profile.setEmergencyContactRelation("Brother");
+		entityManager.persistAndFlush(profile);
+		entityManager.clear();
+
+		MeView me = userRepository.findMeViewByKeycloakUserId(user.getKeycloakUserId()).orElseThrow();
+
+		assertUser(user, me);
+		assertEquals(new MeView.Profile("1 Main Street", "Flat 2", "Pune", "Maharashtra", "India", "411001",
+				"PAN", true, "John Doe", "9000000001", "Brother"), me.profile());
+	}
+
+	@Test
+	void userWithoutProfileHasNoProfile() {
+		User user = persistUser();
+		entityManager.clear();
+
+		MeView me = userRepository.findMeViewByKeycloakUserId(user.getKeycloakUserId()).orElseThrow();
+
+		assertUser(user, me);
+		assertNull(me.profile());
+	}
+
+	@Test
+	void unknownUserHasNoView() {
+		assertTrue(userRepository.findMeViewByKeycloakUserId(UUID.randomUUID().toString()).isEmpty());
+	}
+
+	private User persistUser() {
+		String keycloakUserId = UUID.randomUUID().toString();
+		User user = new User(keycloakUserId, keycloakUserId + "@example.com", "Jane", "Doe",
+				String.valueOf(System.nanoTime() % 10_000_000_000L), User.UserType.tenant);
+		user.setScore(640);
+		user.setEmailVerified(true);
+		return entityManager.persistAndFlush(user);
+	}
+
+	private static void assertUser(User user, MeView me) {
+		assertEquals(user.getId(), me.id());
+		assertEquals(user.getKeycloakUserId(), me.keycloakUserId());
+		assertEquals(user.getEmail(), me.email());
+		assertEquals("Jane", me.firstName());
+		assertEquals("Doe", me.lastName());
+		assertEquals(user.getPhoneNumber(), me.phoneNumber());
+		assertEquals(User.UserType.tenant, me.userType());
+		assertEquals(640, me.score());
+		assertTrue(me.isActive());
+		assertTrue(me.emailVerified());
+		assertNotNull(me.createdAt());
+	}
+}
@@ -0,0 +1,75 @@
+package com.renter.auth.repository;
+
+import com.renter.auth.model.User;
+import com.renter.auth.service.KeycloakService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserRepositoryCacheTests {
+
+	@MockBean
+	private KeycloakService keycloakService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void naturalIdLookupIsServedFromCache() {
+		String keycloakUserId = UUID.randomUUID().toString();
+		userRepository.save(new User(keycloakUserId, keycloakUserId + "@example.com", "Cached", "User", null, User.UserType.owner));
+
+		userRepository.findByKeycloakUserId(keycloakUserId).orElseThrow();
+		long queries = statistics.getPrepareStatementCount();
+		User user = userRepository.findByKeycloakUserId(keycloakUserId).orElseThrow();
+
+		assertEquals(keycloakUserId, user.getKeycloakUserId());
+		assertEquals(queries, statistics.getPrepareStatementCount());
+		assertTrue(statistics.getNaturalIdCacheHitCount() > 0);
+	}
+
+	@Test
+	void updatesAreVisibleThroughCache() {
+		String keycloakUserId = UUID.randomUUID().toString();
+		User saved = userRepository.save(new User(keycloakUserId, keycloakUserId + "@example.com", "Before", "User", null, User.UserType.owner));
+		userRepository.findByKeycloakUserId(keycloakUserId).orElseThrow();
+
+		saved.setFirstName("After");
+		userRepository.save(saved);
+
+		assertEquals("After", userRepository.findByKeycloakUserId(keycloakUserId).orElseThrow().getFirstName());
+		assertEquals("After", userRepository.findByEmail(keycloakUserId + "@example.com").orElseThrow().getFirstName());
+	}
+
+	@Test
+	void cacheStatisticsArePublished() {
+		assertNotNull(meterRegistry.find("hibernate.second.level.cache.requests").meter());
+	}
+}
@@ -0,0 +1,51 @@
+package com.renter.auth.repository;
+
+import com.renter.auth.model.User;
+import com.renter.auth.service.KeycloakService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserSpecificationsTests {
+
+	@MockBean
+	private KeycloakService keycloakService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void fullNameMatchesAcrossTheSpaceIgnoringCase() {
+		String lastName = "Zq" + UUID.randomUUID().toString().substring(0, 8);
+		User user = save("Janet", lastName);
+
+		assertEquals(List.of(user.getId()), ids(UserSpecifications.contains("NET " + lastName.toLowerCase())));
+	}
+
+	@Test
+	void usersMissingANameStillMatchOnTheOther() {
+		String lastName = "Zq" + UUID.randomUUID().toString().substring(0, 8);
+		User user = save(null, lastName);
+
+		assertEquals(List.of(user.getId()), ids(UserSpecifications.contains(lastName)));
+	}
+
+	private User save(String firstName, String lastName) {
+		String keycloakUserId = UUID.randomUUID().toString();
+		return userRepository.save(new User(keycloakUserId, keycloakUserId + "@example.com", firstName, lastName, null, User.UserType.owner));
+	}
+
+	private List<UUID> ids(Specification<User> specification) {
+		return userRepository.findAll(specification).stream().map(User::getId).toList();
+	}
+}
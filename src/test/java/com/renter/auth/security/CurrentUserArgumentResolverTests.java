@@ -0,0 +1,86 @@
+package com.renter.auth.security;
+
+import com.renter.auth.model.User;
+import com.renter.auth.service.CurrentUserLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CurrentUserArgumentResolverTests {
+
+	private final CurrentUserLoader currentUserLoader = mock(CurrentUserLoader.class);
+	private final CurrentUserArgumentResolver resolver = new CurrentUserArgumentResolver(currentUserLoader);
+
+	private final AuthenticatedIdentity identity = new AuthenticatedIdentity(
+			"kc-1", "jane", "jane@example.com", "Jane", "Doe", Set.of("support"));
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void supportsOnlyAnnotatedIdentityAndUserParameters() throws Exception {
+		assertTrue(resolver.supportsParameter(parameter(0)));
+		assertTrue(resolver.supportsParameter(parameter(1)));
+		assertFalse(resolver.supportsParameter(parameter(2)));
+		assertFalse(resolver.supportsParameter(parameter(3)));
+	}
+
+	@Test
+	void identityIsResolvedFromTheTokenWithoutLoadingTheUser() throws Exception {
+		authenticate(identity);
+
+		assertSame(identity, resolver.resolveArgument(parameter(0), null, null, null));
+		verifyNoInteractions(currentUserLoader);
+	}
+
+	@Test
+	void userIsLoadedBySubject() throws Exception {
+		User user = new User("kc-1", "jane@example.com", "Jane", "Doe", null, User.UserType.owner);
+		when(currentUserLoader.load("kc-1")).thenReturn(Optional.of(user));
+		authenticate(identity);
+
+		assertSame(user, resolver.resolveArgument(parameter(1), null, null, null));
+	}
+
+	@Test
+	void resolvesNullWithoutAnAuthenticatedIdentity() throws Exception {
+		assertNull(resolver.resolveArgument(parameter(0), null, null, null));
+
+		SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+				"key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+		assertNull(resolver.resolveArgument(parameter(0), null, null, null));
+		assertNull(resolver.resolveArgument(parameter(1), null, null, null));
+		verifyNoInteractions(currentUserLoader);
+	}
+
+	private static void authenticate(AuthenticatedIdentity identity) {
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(identity, null, identity.authorities()));
+	}
+
+	private static MethodParameter parameter(int index) throws NoSuchMethodException {
+		Method method = Handlers.class.getDeclaredMethod("handle",
+				AuthenticatedIdentity.class, User.class, User.class, String.class);
+		return new MethodParameter(method, index);
+	}
+
+	@SuppressWarnings("unused")
+	private static class Handlers {
+		void handle(@CurrentUser AuthenticatedIdentity identity, @CurrentUser User user,
+					User unannotated, @CurrentUser String subject) {
+		}
+	}
+}
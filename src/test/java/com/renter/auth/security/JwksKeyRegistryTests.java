@@ -0,0 +1,140 @@
+package com.renter.auth.security;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwksKeyRegistryTests {
+
+	private final ExecutorService callers = Executors.newFixedThreadPool(8);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private JwksKeyRegistry registry;
+
+	@AfterEach
+	void tearDown() {
+		callers.shutdownNow();
+		if (registry != null) {
+			registry.stop();
+		}
+	}
+
+	@Test
+	void concurrentMissesShareOneFetch() throws Exception {
+		RSAKey key = new RSAKeyGenerator(2048).keyID("kid-1").keyUse(KeyUse.SIGNATURE).generate();
+		AtomicInteger fetches = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		registry = new JwksKeyRegistry(() -> {
+			fetches.incrementAndGet();
+			release.await(5, TimeUnit.SECONDS);
+			return new JwksFetcher.Response(new JWKSet(key.toPublicJWK()), Duration.ofMinutes(5));
+		}, Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofSeconds(5),
+				Duration.ofMinutes(1), Duration.ofSeconds(10), meterRegistry);
+
+		List<Future<RSAPublicKey>> lookups = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			lookups.add(callers.submit(() -> registry.getKey("kid-1")));
+		}
+		Thread.sleep(100);
+		release.countDown();
+
+		for (Future<RSAPublicKey> lookup : lookups) {
+			assertEquals(key.toRSAPublicKey(), lookup.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, fetches.get());
+		assertEquals(key.toRSAPublicKey(), registry.getKey("kid-1"));
+		assertEquals(1, fetches.get());
+	}
+
+	@Test
+	void unknownKidsAreNegativelyCachedAndRefetchesThrottled() throws Exception {
+		RSAKey key = new RSAKeyGenerator(2048).keyID("kid-1").keyUse(KeyUse.SIGNATURE).generate();
+		AtomicInteger fetches = new AtomicInteger();
+
+		registry = new JwksKeyRegistry(() -> {
+			fetches.incrementAndGet();
+			return new JwksFetcher.Response(new JWKSet(key.toPublicJWK()), null);
+		}, Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofSeconds(5),
+				Duration.ofMinutes(1), Duration.ofMinutes(1), meterRegistry);
+		registry.refresh().get(5, TimeUnit.SECONDS);
+		assertEquals(1, fetches.get());
+
+		// The first unknown kid may refetch once; repeats and other made-up kids may not
+		assertNull(registry.getKey("forged-1"));
+		assertEquals(2, fetches.get());
+		for (int i = 0; i < 100; i++) {
+			assertNull(registry.getKey("forged-1"));
+			assertNull(registry.getKey("forged-" + (i + 2)));
+		}
+		assertEquals(2, fetches.get());
+		assertEquals(key.toRSAPublicKey(), registry.getKey("kid-1"));
+
+		assertEquals(100.0, meterRegistry.get("auth.jwks.unknown-kid").tag("outcome", "negative_cached").counter().count());
+		assertEquals(100.0, meterRegistry.get("auth.jwks.unknown-kid").tag("outcome", "throttled").counter().count());
+	}
+
+	@Test
+	void slowRefreshDoesNotHoldUpUnknownKidLookups() throws Exception {
+		RSAKey key = new RSAKeyGenerator(2048).keyID("kid-1").keyUse(KeyUse.SIGNATURE).generate();
+		AtomicInteger fetches = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		registry = new JwksKeyRegistry(() -> {
+			fetches.incrementAndGet();
+			release.await(5, TimeUnit.SECONDS);
+			return new JwksFetcher.Response(new JWKSet(key.toPublicJWK()), null);
+		}, Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofMillis(50),
+				Duration.ofMinutes(1), Duration.ofSeconds(10), meterRegistry);
+
+		long start = System.nanoTime();
+		assertNull(registry.getKey("kid-1"));
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+		assertEquals(1.0, meterRegistry.get("auth.jwks.unknown-kid").tag("outcome", "refresh_pending").counter().count());
+
+		// The refresh carries on, and the kid was not remembered as unknown meanwhile
+		release.countDown();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (registry.snapshot().keys().isEmpty() && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(key.toRSAPublicKey(), registry.getKey("kid-1"));
+		assertEquals(1, fetches.get());
+	}
+
+	@Test
+	void parsesMaxAgeFromCacheControl() {
+		assertEquals(Duration.ofSeconds(300), JwksKeyRegistry.parseMaxAge("public, max-age=300"));
+		assertNull(JwksKeyRegistry.parseMaxAge("no-cache"));
+		assertNull(JwksKeyRegistry.parseMaxAge(null));
+	}
+
+	@Test
+	void overflowingMaxAgeIsClampedToTheRefreshInterval() throws Exception {
+		String cacheControl = "max-age=" + "9".repeat(30);
+		assertEquals(Duration.ofSeconds(Long.MAX_VALUE), JwksKeyRegistry.parseMaxAge(cacheControl));
+
+		RSAKey key = new RSAKeyGenerator(2048).keyID("kid-1").keyUse(KeyUse.SIGNATURE).generate();
+		registry = new JwksKeyRegistry(() -> new JwksFetcher.Response(new JWKSet(key.toPublicJWK()), JwksKeyRegistry.parseMaxAge(cacheControl)),
+				Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofSeconds(5),
+				Duration.ofMinutes(1), Duration.ofSeconds(10), meterRegistry);
+
+		assertEquals(key.toRSAPublicKey(), registry.refresh().get(5, TimeUnit.SECONDS).keys().get("kid-1"));
+	}
+}
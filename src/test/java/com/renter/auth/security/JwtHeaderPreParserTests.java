@@ -0,0 +1,62 @@
+package com.renter.auth.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtHeaderPreParserTests {
+
+	private final JwtHeaderPreParser preParser = new JwtHeaderPreParser(8192, 1024, List.of("RS256"));
+
+	@Test
+	void extractsAlgAndKid() {
+		JwtHeaderPreParser.JwtHeader header = preParser.preParse(
+				token("{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"abc-123\"}"));
+
+		assertNotNull(header);
+		assertEquals("RS256", header.alg());
+		assertEquals("abc-123", header.kid());
+	}
+
+	@Test
+	void ignoresNestedMembers() {
+		JwtHeaderPreParser.JwtHeader header = preParser.preParse(
+				token("{\"jwk\":{\"kid\":\"nested\",\"alg\":\"none\"}, \"alg\" : \"RS256\", \"kid\" : \"outer\"}"));
+
+		assertNotNull(header);
+		assertEquals("outer", header.kid());
+	}
+
+	@Test
+	void rejectsDisallowedAlgorithmsAndMissingKid() {
+		assertNull(preParser.preParse(token("{\"alg\":\"HS256\",\"kid\":\"abc\"}")));
+		assertNull(preParser.preParse(token("{\"alg\":\"none\",\"kid\":\"abc\"}")));
+		assertNull(preParser.preParse(token("{\"alg\":\"RS256\"}")));
+		assertNull(preParser.preParse(token("{\"alg\":\"RS256\",\"kid\":\"a\",\"kid\":\"b\"}")));
+	}
+
+	@Test
+	void rejectsBadStructure() {
+		String header = encode("{\"alg\":\"RS256\",\"kid\":\"abc\"}");
+		assertNull(preParser.preParse(""));
+		assertNull(preParser.preParse(header + ".payload"));
+		assertNull(preParser.preParse(header + ".payload.sig.extra"));
+		assertNull(preParser.preParse(header + "..sig"));
+		assertNull(preParser.preParse(header + ".payload."));
+		assertNull(preParser.preParse(header + ".pay load.sig"));
+		assertNull(preParser.preParse("x".repeat(9000)));
+		assertNull(preParser.preParse(encode("not json") + ".payload.sig"));
+	}
+
+	private static String token(String headerJson) {
+		return encode(headerJson) + ".eyJzdWIiOiJ1c2VyIn0.c2ln";
+	}
+
+	private static String encode(String value) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,133 @@
+package com.renter.auth.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilsTests {
+
+	private static final String ISSUER = "http://keycloak.test/realms/test-realm";
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private RSAKey signingKey;
+	private final AtomicReference<JWKSet> jwks = new AtomicReference<>();
+	private JwksKeyRegistry keyRegistry;
+	private JwtUtils jwtUtils;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		signingKey = new RSAKeyGenerator(2048).keyID("kid-1").keyUse(KeyUse.SIGNATURE).generate();
+		jwks.set(new JWKSet(signingKey.toPublicJWK()));
+		keyRegistry = new JwksKeyRegistry(() -> new JwksFetcher.Response(jwks.get(), null),
+				Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofSeconds(5),
+				Duration.ofMinutes(1), Duration.ofSeconds(10), meterRegistry);
+
+		jwtUtils = new JwtUtils(
+				new JwtHeaderPreParser(8192, 1024, List.of("RS256")),
+				new JwtVerifierRegistry(keyRegistry),
+				new JwtClaimsValidator(ISSUER, Set.of("test-client"), Duration.ofSeconds(30)),
+				new VerifiedTokenCache(100, DataSize.ofMegabytes(1), meterRegistry),
+				meterRegistry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		keyRegistry.stop();
+	}
+
+	@Test
+	void acceptsValidToken() throws Exception {
+		String token = sign(signingKey, claims().build());
+
+		Map<String, Object> claims = jwtUtils.validateTokenAndGetClaims(token);
+
+		assertEquals("user-1", claims.get("sub"));
+		assertSame(claims, jwtUtils.validateTokenAndGetClaims(token));
+		// The second call is served from the verified-token cache; only the kid is looked up again
+		assertEquals(1, stageCount("jwt_verify", "valid"));
+		assertEquals(2, stageCount("key_lookup", "found"));
+	}
+
+	@Test
+	void cachedTokenIsRejectedOnceItsKeyLeavesTheJwks() throws Exception {
+		String token = sign(signingKey, claims().build());
+		assertInstanceOf(TokenValidationResult.Valid.class, jwtUtils.validate(token));
+
+		jwks.set(new JWKSet());
+		keyRegistry.refresh().get(5, TimeUnit.SECONDS);
+
+		assertEquals(TokenValidationResult.rejected(TokenRejectionReason.UNKNOWN_KEY), jwtUtils.validate(token));
+	}
+
+	@Test
+	void rejectsExpiredToken() throws Exception {
+		String token = sign(signingKey, claims().expirationTime(new Date(System.currentTimeMillis() - 120_000)).build());
+
+		assertEquals(TokenValidationResult.rejected(TokenRejectionReason.EXPIRED), jwtUtils.validate(token));
+		assertThrows(IllegalStateException.class, () -> jwtUtils.validateTokenAndGetClaims(token));
+		assertEquals(2.0, meterRegistry.get("auth.jwt.rejections").tag("reason", "expired").counter().count());
+	}
+
+	@Test
+	void rejectsForeignIssuerAndAudience() throws Exception {
+		String otherIssuer = sign(signingKey, claims().issuer("http://evil.test/realms/test-realm").build());
+		String otherAudience = sign(signingKey, claims().audience("other").claim("azp", "other").build());
+
+		assertEquals(TokenValidationResult.rejected(TokenRejectionReason.INVALID_ISSUER), jwtUtils.validate(otherIssuer));
+		assertEquals(TokenValidationResult.rejected(TokenRejectionReason.INVALID_AUDIENCE), jwtUtils.validate(otherAudience));
+	}
+
+	@Test
+	void rejectsMalformedToken() {
+		assertEquals(TokenValidationResult.rejected(TokenRejectionReason.MALFORMED), jwtUtils.validate("not-a-token"));
+	}
+
+	@Test
+	void rejectsTokenSignedWithUnpublishedKey() throws Exception {
+		RSAKey forged = new RSAKeyGenerator(2048).keyID("kid-1").generate();
+		String token = sign(forged, claims().build());
+
+		assertEquals(TokenValidationResult.rejected(TokenRejectionReason.INVALID_SIGNATURE), jwtUtils.validate(token));
+		assertEquals(1, stageCount("jwt_verify", "invalid"));
+	}
+
+	private long stageCount(String stage, String outcome) {
+		return meterRegistry.get("auth.stage").tag("stage", stage).tag("outcome", outcome).timer().count();
+	}
+
+	private static JWTClaimsSet.Builder claims() {
+		return new JWTClaimsSet.Builder()
+				.subject("user-1")
+				.issuer(ISSUER)
+				.audience("account")
+				.claim("azp", "test-client")
+				.expirationTime(new Date(System.currentTimeMillis() + 300_000));
+	}
+
+	private static String sign(RSAKey key, JWTClaimsSet claims) throws Exception {
+		SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+		jwt.sign(new RSASSASigner(key));
+		return jwt.serialize();
+	}
+}
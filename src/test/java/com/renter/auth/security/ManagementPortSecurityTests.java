@@ -0,0 +1,67 @@
+package com.renter.auth.security;
+
+import com.renter.auth.service.KeycloakService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class ManagementPortSecurityTests {
+
+	private static final int MANAGEMENT_PORT = freePort();
+
+	@MockBean
+	private KeycloakService keycloakService;
+
+	@LocalServerPort
+	private int serverPort;
+
+	private final HttpClient httpClient = HttpClient.newHttpClient();
+
+	@DynamicPropertySource
+	static void managementPort(DynamicPropertyRegistry registry) {
+		registry.add("management.server.port", () -> MANAGEMENT_PORT);
+	}
+
+	@Test
+	void prometheusIsScrapedOnTheManagementPort() throws Exception {
+		HttpResponse<String> response = get(MANAGEMENT_PORT, "/actuator/prometheus");
+
+		assertEquals(200, response.statusCode());
+		assertTrue(response.body().contains("auth_stage_seconds"));
+	}
+
+	@Test
+	void prometheusIsNotServedOnThePublicPort() throws Exception {
+		assertNotEquals(200, get(serverPort, "/actuator/prometheus").statusCode());
+	}
+
+	private HttpResponse<String> get(int port, String path) throws Exception {
+		return httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build(),
+				HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static int freePort() {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.renter.auth.security;
+
+import com.nimbusds.jose.JWSVerifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class VerifiedTokenCacheTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final VerifiedTokenCache cache = new VerifiedTokenCache(100, DataSize.ofMegabytes(1), meterRegistry);
+	private final JWSVerifier verifier = mock(JWSVerifier.class);
+
+	@Test
+	void returnsCachedClaimsUntilExpiry() {
+		Date exp = new Date(System.currentTimeMillis() + 60_000);
+		cache.put("a.b.c", verifier, Map.of("sub", "user-1"), exp);
+
+		assertEquals("user-1", cache.get("a.b.c", verifier).get("sub"));
+		assertNull(cache.get("a.b.d", verifier));
+		assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+	}
+
+	@Test
+	void tokensVerifiedWithAnotherKeyAreNotServed() {
+		cache.put("a.b.c", verifier, Map.of("sub", "user-1"), new Date(System.currentTimeMillis() + 60_000));
+
+		assertNull(cache.get("a.b.c", mock(JWSVerifier.class)));
+	}
+
+	@Test
+	void doesNotCacheTokensWithoutFutureExpiry() {
+		cache.put("no.exp.token", verifier, Map.of("sub", "user-1"), null);
+		cache.put("old.exp.token", verifier, Map.of("sub", "user-1"), new Date(System.currentTimeMillis() - 1_000));
+
+		assertNull(cache.get("no.exp.token", verifier));
+		assertNull(cache.get("old.exp.token", verifier));
+	}
+
+	@Test
+	void cachedClaimsAreReadOnly() {
+		Date exp = new Date(System.currentTimeMillis() + 60_000);
+		Map<String, Object> claims = cache.put("a.b.c", verifier,
+				Map.of("realm_access", Map.of("roles", new java.util.ArrayList<>(List.of("tenant")))), exp);
+
+		@SuppressWarnings("unchecked")
+		List<Object> roles = (List<Object>) ((Map<String, Object>) claims.get("realm_access")).get("roles");
+		assertThrows(UnsupportedOperationException.class, () -> roles.add("admin"));
+		assertThrows(UnsupportedOperationException.class, () -> claims.put("sub", "other"));
+	}
+}
@@ -0,0 +1,74 @@
+package com.renter.auth.service;
+
+import com.renter.auth.model.User;
+import com.renter.auth.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CurrentUserLoaderTests {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CurrentUserLoader currentUserLoader = new CurrentUserLoader(userRepository, meterRegistry);
+
+	@Test
+	void concurrentLookupsWaitForOneLoadAndGetTheirOwnInstance() throws Exception {
+		User loaded = new User("kc-1", "a@b.c", "A", "B", null, User.UserType.owner);
+		User reread = new User("kc-1", "a@b.c", "A", "B", null, User.UserType.owner);
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(userRepository.findByKeycloakUserId("kc-1"))
+				.thenAnswer(invocation -> {
+					loading.countDown();
+					release.await(5, TimeUnit.SECONDS);
+					return Optional.of(loaded);
+				})
+				.thenReturn(Optional.of(reread));
+
+		CompletableFuture<Optional<User>> first = CompletableFuture.supplyAsync(() -> currentUserLoader.load("kc-1"));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+		AtomicReference<Optional<User>> joined = new AtomicReference<>();
+		Thread joiner = new Thread(() -> joined.set(currentUserLoader.load("kc-1")));
+		joiner.start();
+		waitUntilParked(joiner);
+		// The joiner waits for the load rather than querying alongside it
+		verify(userRepository, times(1)).findByKeycloakUserId("kc-1");
+		release.countDown();
+		joiner.join(5_000);
+
+		assertSame(loaded, first.get(5, TimeUnit.SECONDS).orElseThrow());
+		// Read again once the load is done, i.e. from the second-level cache, not the loader's instance
+		assertSame(reread, joined.get().orElseThrow());
+		verify(userRepository, times(2)).findByKeycloakUserId("kc-1");
+		assertEquals(1, meterRegistry.get("auth.stage").tag("stage", "user_lookup").tag("outcome", "found").timer().count());
+	}
+
+	@Test
+	void failedLoadIsNotRemembered() {
+		when(userRepository.findByKeycloakUserId("kc-1"))
+				.thenThrow(new IllegalStateException("database down"))
+				.thenReturn(Optional.empty());
+
+		assertThrows(IllegalStateException.class, () -> currentUserLoader.load("kc-1"));
+		assertTrue(currentUserLoader.load("kc-1").isEmpty());
+		assertEquals(1, meterRegistry.get("auth.stage").tag("stage", "user_lookup").tag("outcome", "not_found").timer().count());
+	}
+
+	private static void waitUntilParked(Thread thread) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(Thread.State.WAITING, thread.getState());
+	}
+}
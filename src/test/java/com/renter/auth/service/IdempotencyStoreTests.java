@@ -0,0 +1,98 @@
+package com.renter.auth.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renter.auth.exception.ConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTests {
+
+	private static final Duration TTL = Duration.ofMinutes(1);
+
+	private final IdempotencyStore store = new IdempotencyStore(new ObjectMapper(), 100, Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+	@Test
+	void replaysCompletedResponse() {
+		AtomicInteger calls = new AtomicInteger();
+
+		ResponseEntity<?> first = store.execute("register", "key-1", Map.of("email", "a@b.c"), TTL,
+				() -> ResponseEntity.accepted().body(Map.of("n", calls.incrementAndGet())));
+		ResponseEntity<?> second = store.execute("register", "key-1", Map.of("email", "a@b.c"), TTL,
+				() -> ResponseEntity.accepted().body(Map.of("n", calls.incrementAndGet())));
+
+		assertEquals(1, calls.get());
+		assertEquals(first.getBody(), second.getBody());
+		assertEquals("true", second.getHeaders().getFirst("Idempotent-Replayed"));
+	}
+
+	@Test
+	void rejectsKeyReuseWithDifferentBody() {
+		store.execute("register", "key-1", Map.of("email", "a@b.c"), TTL, () -> ResponseEntity.ok().build());
+
+		assertThrows(ConflictException.class, () -> store.execute("register", "key-1", Map.of("email", "x@y.z"), TTL,
+				() -> ResponseEntity.ok().build()));
+	}
+
+	@Test
+	void doesNotStoreServerErrors() {
+		AtomicInteger calls = new AtomicInteger();
+
+		store.execute("login", "key-1", Map.of(), TTL, () -> {
+			calls.incrementAndGet();
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		});
+		ResponseEntity<?> retry = store.execute("login", "key-1", Map.of(), TTL, () -> {
+			calls.incrementAndGet();
+			return ResponseEntity.ok().build();
+		});
+
+		assertEquals(2, calls.get());
+		assertEquals(HttpStatus.OK, retry.getStatusCode());
+	}
+
+	@Test
+	void concurrentDuplicateWaitsForInFlightResult() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+
+		CompletableFuture<ResponseEntity<?>> original = CompletableFuture.supplyAsync(() ->
+				store.execute("login", "key-1", Map.of(), TTL, () -> {
+					calls.incrementAndGet();
+					started.countDown();
+					await(release);
+					return ResponseEntity.ok("tokens");
+				}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		CompletableFuture<ResponseEntity<?>> duplicate = CompletableFuture.supplyAsync(() ->
+				store.execute("login", "key-1", Map.of(), TTL, () -> {
+					calls.incrementAndGet();
+					return ResponseEntity.ok("second");
+				}));
+		release.countDown();
+
+		assertEquals("tokens", original.get(5, TimeUnit.SECONDS).getBody());
+		assertEquals("tokens", duplicate.get(5, TimeUnit.SECONDS).getBody());
+		assertEquals(1, calls.get());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
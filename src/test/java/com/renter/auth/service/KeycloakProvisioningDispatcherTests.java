@@ -0,0 +1,129 @@
+package com.renter.auth.service;
+
+import com.renter.auth.model.ProvisioningTask;
+import com.renter.auth.model.User;
+import com.renter.auth.repository.ProvisioningTaskRepository;
+import com.renter.auth.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class KeycloakProvisioningDispatcherTests {
+
+	private final ProvisioningTaskRepository provisioningTaskRepository = mock(ProvisioningTaskRepository.class);
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final KeycloakService keycloakService = mock(KeycloakService.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final KeycloakProvisioningDispatcher dispatcher = new KeycloakProvisioningDispatcher();
+
+	private User user;
+	private ProvisioningTask task;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(dispatcher, "provisioningTaskRepository", provisioningTaskRepository);
+		ReflectionTestUtils.setField(dispatcher, "userRepository", userRepository);
+		ReflectionTestUtils.setField(dispatcher, "keycloakService", keycloakService);
+		ReflectionTestUtils.setField(dispatcher, "transactionManager", mock(PlatformTransactionManager.class));
+		ReflectionTestUtils.setField(dispatcher, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(dispatcher, "enabled", false);
+		ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+		ReflectionTestUtils.setField(dispatcher, "lease", Duration.ofMinutes(1));
+		ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+		ReflectionTestUtils.setField(dispatcher, "initialBackoff", Duration.ofSeconds(2));
+		ReflectionTestUtils.setField(dispatcher, "maxBackoff", Duration.ofMinutes(5));
+		ReflectionTestUtils.setField(dispatcher, "callbackTimeout", Duration.ofSeconds(1));
+		dispatcher.start();
+
+		user = new User(UUID.randomUUID().toString(), "Jane@Example.com", "Jane", "Doe", null, User.UserType.tenant);
+		user.setId(UUID.randomUUID());
+		task = new ProvisioningTask(user, user.getEmail(), "{\"value\":\"x\"}", "{\"hashIterations\":1}", null);
+		when(provisioningTaskRepository.findDueForUpdate(eq(ProvisioningTask.Status.PENDING), any(), any()))
+				.thenReturn(List.of(task));
+		when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+	}
+
+	@Test
+	void matchingKeycloakIdMarksTaskProvisioned() {
+		when(keycloakService.importUsers(any()))
+				.thenReturn(Map.of("jane@example.com", new KeycloakService.ImportedUser(user.getKeycloakUserId(), true)));
+
+		assertEquals(1, dispatcher.dispatchBatch());
+
+		assertEquals(ProvisioningTask.Status.PROVISIONED, task.getStatus());
+		assertNull(task.getCredentialSecret());
+		assertTrue(user.getIsActive());
+		verify(provisioningTaskRepository).saveAll(List.of(task));
+		verify(userRepository, never()).save(any());
+		assertEquals(1.0, outcomeCount("provisioned"));
+	}
+
+	@Test
+	void usernameTakenByAnotherKeycloakUserFailsAndDeactivatesUser() {
+		when(keycloakService.importUsers(any()))
+				.thenReturn(Map.of("jane@example.com", new KeycloakService.ImportedUser(UUID.randomUUID().toString(), false)));
+
+		dispatcher.dispatchBatch();
+
+		assertEquals(ProvisioningTask.Status.FAILED, task.getStatus());
+		assertEquals("Username already exists in Keycloak", task.getLastError());
+		assertFalse(user.getIsActive());
+		verify(userRepository).save(user);
+		assertEquals(1.0, outcomeCount("failed"));
+	}
+
+	@Test
+	void failedImportIsRetriedWithBackoff() {
+		when(keycloakService.importUsers(any())).thenThrow(new IllegalStateException("Keycloak unavailable"));
+
+		Instant before = Instant.now();
+		dispatcher.dispatchBatch();
+
+		assertEquals(ProvisioningTask.Status.PENDING, task.getStatus());
+		assertEquals(1, task.getAttempts());
+		assertEquals("Keycloak unavailable", task.getLastError());
+		// First retry waits between half and all of the initial backoff
+		assertFalse(task.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+		assertFalse(task.getNextAttemptAt().isAfter(Instant.now().plusSeconds(2)));
+		assertNotNull(task.getCredentialSecret());
+		assertTrue(user.getIsActive());
+		assertEquals(1.0, outcomeCount("retried"));
+	}
+
+	@Test
+	void givesUpAfterMaxAttemptsAndDeactivatesUser() {
+		when(keycloakService.importUsers(any())).thenThrow(new IllegalStateException("Keycloak unavailable"));
+
+		for (int attempt = 0; attempt < 3; attempt++) {
+			dispatcher.dispatchBatch();
+		}
+
+		assertEquals(ProvisioningTask.Status.FAILED, task.getStatus());
+		assertEquals(3, task.getAttempts());
+		assertEquals("Keycloak unavailable", task.getLastError());
+		assertNull(task.getCredentialSecret());
+		assertFalse(user.getIsActive());
+		verify(userRepository).save(user);
+		assertEquals(2.0, outcomeCount("retried"));
+		assertEquals(1.0, outcomeCount("failed"));
+	}
+
+	private double outcomeCount(String outcome) {
+		return meterRegistry.get("auth.provisioning.outcomes").tag("outcome", outcome).counter().count();
+	}
+}
@@ -0,0 +1,222 @@
+package com.renter.auth.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renter.auth.dto.TokenInfo;
+import com.renter.auth.dto.TokenResponse;
+import com.renter.auth.exception.BadGatewayException;
+import com.renter.auth.exception.ServiceUnavailableException;
+import com.renter.auth.exception.UnauthorizedException;
+import com.renter.auth.security.JwtUtils;
+import com.renter.auth.security.TokenRejectionReason;
+import com.renter.auth.security.TokenValidationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class KeycloakServiceTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void hashedPasswordUsesKeycloakCredentialFormat() throws Exception {
+		KeycloakService.HashedPassword hashed = KeycloakService.hashPassword("s3cret-Pa55");
+
+		JsonNode secret = objectMapper.readTree(hashed.secretData());
+		JsonNode data = objectMapper.readTree(hashed.credentialData());
+		assertEquals("pbkdf2-sha256", data.get("algorithm").asText());
+		assertEquals(27500, data.get("hashIterations").asInt());
+
+		byte[] salt = Base64.getDecoder().decode(secret.get("salt").asText());
+		PBEKeySpec spec = new PBEKeySpec("s3cret-Pa55".toCharArray(), salt, 27500, 512);
+		byte[] expected = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+		assertArrayEquals(expected, Base64.getDecoder().decode(secret.get("value").asText()));
+	}
+
+	@Test
+	void saltsEveryHash() {
+		assertNotEquals(KeycloakService.hashPassword("same").secretData(), KeycloakService.hashPassword("same").secretData());
+	}
+
+	@Test
+	void adminCallsBeyondTheBulkheadAreRejectedFast() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		RealmResource realm = mock(RealmResource.class);
+		when(realm.partialImport(any())).thenAnswer(invocation -> {
+			entered.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			throw new IllegalStateException("Keycloak unavailable");
+		});
+		Keycloak keycloak = mock(Keycloak.class);
+		when(keycloak.realm("test-realm")).thenReturn(realm);
+
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		KeycloakService keycloakService = new KeycloakService();
+		ReflectionTestUtils.setField(keycloakService, "keycloak", keycloak);
+		ReflectionTestUtils.setField(keycloakService, "realm", "test-realm");
+		ReflectionTestUtils.setField(keycloakService, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(keycloakService, "maxConcurrentAdminCalls", 1);
+		ReflectionTestUtils.setField(keycloakService, "adminBulkheadWait", Duration.ofMillis(10));
+		keycloakService.initAdminBulkhead();
+
+		CompletableFuture<?> first = CompletableFuture.runAsync(() -> keycloakService.importUsers(List.of()));
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		assertEquals(1.0, meterRegistry.get("auth.keycloak.bulkhead.active").gauge().value());
+
+		assertThrows(ServiceUnavailableException.class, () -> keycloakService.importUsers(List.of()));
+		assertEquals(1.0, meterRegistry.get("auth.keycloak.bulkhead.rejections").counter().count());
+
+		release.countDown();
+		assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+		assertEquals(0.0, meterRegistry.get("auth.keycloak.bulkhead.active").gauge().value());
+	}
+
+	@Test
+	void refreshTokenIsReturnedFromTheTokenEndpoint() {
+		TokenResponse tokens = new TokenResponse();
+		RestTemplate restTemplate = mock(RestTemplate.class);
+		when(restTemplate.postForEntity(anyString(), any(), eq(TokenResponse.class))).thenReturn(ResponseEntity.ok(tokens));
+
+		assertSame(tokens, tokenClient(restTemplate).refreshToken("refresh"));
+	}
+
+	@Test
+	void rejectedRefreshTokenIsUnauthorized() {
+		RestTemplate restTemplate = mock(RestTemplate.class);
+		when(restTemplate.postForEntity(anyString(), any(), eq(TokenResponse.class)))
+				.thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST, "invalid_grant"));
+
+		UnauthorizedException e = assertThrows(UnauthorizedException.class, () -> tokenClient(restTemplate).refreshToken("expired"));
+		assertEquals("Invalid or expired refresh token", e.getMessage());
+	}
+
+	@Test
+	void keycloakFailuresDuringRefreshAreBadGateway() {
+		RestTemplate restTemplate = mock(RestTemplate.class);
+		when(restTemplate.postForEntity(anyString(), any(), eq(TokenResponse.class)))
+				.thenThrow(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR, "database down"))
+				.thenThrow(new ResourceAccessException("Read timed out"));
+		KeycloakService keycloakService = tokenClient(restTemplate);
+
+		BadGatewayException serverError = assertThrows(BadGatewayException.class, () -> keycloakService.refreshToken("refresh"));
+		assertFalse(serverError.getMessage().contains("database down"));
+		assertThrows(BadGatewayException.class, () -> keycloakService.refreshToken("refresh"));
+	}
+
+	@Test
+	void tokenInfoComesFromLocalClaimsWhenComplete() {
+		JwtUtils jwtUtils = mock(JwtUtils.class);
+		when(jwtUtils.validateTokenAndGetClaims("token")).thenReturn(claims("jti-1", "jane@example.com", "jane"));
+		RestTemplate restTemplate = mock(RestTemplate.class);
+
+		TokenInfo info = tokenIntrospector(jwtUtils, restTemplate).getTokenInfo("token");
+
+		assertEquals("kc-1", info.getKeycloakUserId());
+		assertEquals("jane@example.com", info.getEmail());
+		assertEquals("jane", info.getUsername());
+		verifyNoInteractions(restTemplate);
+	}
+
+	@Test
+	void userInfoFallbackIsCachedPerToken() {
+		JwtUtils jwtUtils = mock(JwtUtils.class);
+		when(jwtUtils.validateTokenAndGetClaims("first")).thenReturn(claims("jti-1", null, null));
+		when(jwtUtils.validateTokenAndGetClaims("second")).thenReturn(claims("jti-2", null, null));
+		RestTemplate restTemplate = mock(RestTemplate.class);
+		when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(), eq(Map.class)))
+				.thenReturn(ResponseEntity.ok(Map.of("sub", "kc-1", "email", "jane@example.com", "preferred_username", "jane")));
+		KeycloakService keycloakService = tokenIntrospector(jwtUtils, restTemplate);
+
+		assertEquals("jane@example.com", keycloakService.getTokenInfo("first").getEmail());
+		assertEquals("jane@example.com", keycloakService.getTokenInfo("first").getEmail());
+		verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.GET), any(), eq(Map.class));
+
+		keycloakService.getTokenInfo("second");
+		verify(restTemplate, times(2)).exchange(anyString(), eq(HttpMethod.GET), any(), eq(Map.class));
+	}
+
+	@Test
+	void rejectedTokenHasNoTokenInfo() {
+		JwtUtils jwtUtils = mock(JwtUtils.class);
+		when(jwtUtils.validateTokenAndGetClaims("expired")).thenThrow(new IllegalStateException("Token expired"));
+		RestTemplate restTemplate = mock(RestTemplate.class);
+
+		assertThrows(UnauthorizedException.class, () -> tokenIntrospector(jwtUtils, restTemplate).getTokenInfo("expired"));
+		verifyNoInteractions(restTemplate);
+	}
+
+	@Test
+	void userInfoFailureIsBadGateway() {
+		JwtUtils jwtUtils = mock(JwtUtils.class);
+		when(jwtUtils.validateTokenAndGetClaims("token")).thenReturn(claims("jti-1", null, null));
+		RestTemplate restTemplate = mock(RestTemplate.class);
+		when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(), eq(Map.class)))
+				.thenThrow(new ResourceAccessException("Read timed out"));
+
+		assertThrows(BadGatewayException.class, () -> tokenIntrospector(jwtUtils, restTemplate).getTokenInfo("token"));
+	}
+
+	@Test
+	void tokensAreValidatedLocally() {
+		JwtUtils jwtUtils = mock(JwtUtils.class);
+		when(jwtUtils.validate("token")).thenReturn(TokenValidationResult.valid(claims("jti-1", null, null)));
+		when(jwtUtils.validate("expired")).thenReturn(TokenValidationResult.rejected(TokenRejectionReason.EXPIRED));
+		RestTemplate restTemplate = mock(RestTemplate.class);
+		KeycloakService keycloakService = tokenIntrospector(jwtUtils, restTemplate);
+
+		assertTrue(keycloakService.validateToken("token"));
+		assertFalse(keycloakService.validateToken("expired"));
+		verifyNoInteractions(restTemplate);
+	}
+
+	private static Map<String, Object> claims(String jti, String email, String username) {
+		Map<String, Object> claims = new HashMap<>();
+		claims.put("sub", "kc-1");
+		claims.put("jti", jti);
+		claims.put("exp", new Date(System.currentTimeMillis() + 60_000));
+		claims.put("email", email);
+		claims.put("preferred_username", username);
+		return claims;
+	}
+
+	private static KeycloakService tokenIntrospector(JwtUtils jwtUtils, RestTemplate restTemplate) {
+		KeycloakService keycloakService = tokenClient(restTemplate);
+		ReflectionTestUtils.setField(keycloakService, "jwtUtils", jwtUtils);
+		return keycloakService;
+	}
+
+	private static KeycloakService tokenClient(RestTemplate restTemplate) {
+		KeycloakService keycloakService = new KeycloakService();
+		ReflectionTestUtils.setField(keycloakService, "restTemplate", restTemplate);
+		ReflectionTestUtils.setField(keycloakService, "authServerUrl", "http://keycloak");
+		ReflectionTestUtils.setField(keycloakService, "realm", "test-realm");
+		ReflectionTestUtils.setField(keycloakService, "clientId", "auth-service");
+		ReflectionTestUtils.setField(keycloakService, "meterRegistry", new SimpleMeterRegistry());
+		return keycloakService;
+	}
+}
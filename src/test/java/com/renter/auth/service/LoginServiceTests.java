@@ -0,0 +1,121 @@
+package com.renter.auth.service;
+
+import com.renter.auth.dto.TokenResponse;
+import com.renter.auth.exception.ServiceUnavailableException;
+import com.renter.auth.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LoginServiceTests {
+
+	private final UserService userService = mock(UserService.class);
+	private final KeycloakService keycloakService = mock(KeycloakService.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final LoginService loginService = new LoginService();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(loginService, "userService", userService);
+		ReflectionTestUtils.setField(loginService, "keycloakService", keycloakService);
+		ReflectionTestUtils.setField(loginService, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(loginService, "threads", 4);
+		ReflectionTestUtils.setField(loginService, "queueCapacity", 10);
+		ReflectionTestUtils.setField(loginService, "timeout", Duration.ofSeconds(5));
+		loginService.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		loginService.stop();
+	}
+
+	@Test
+	void combinesUserAndTokens() throws Exception {
+		User user = new User("kc-1", "a@b.c", "A", "B", null, User.UserType.owner);
+		TokenResponse tokens = new TokenResponse();
+		when(userService.findByEmail("a@b.c")).thenReturn(Optional.of(user));
+		when(keycloakService.authenticateUser("a@b.c", "pw")).thenReturn(tokens);
+
+		LoginService.LoginResult result = loginService.login("a@b.c", "pw");
+
+		assertSame(user, result.user());
+		assertSame(tokens, result.tokens());
+		assertEquals(1, meterRegistry.get("auth.login.stage").tag("stage", "token_grant").timer().count());
+	}
+
+	@Test
+	void unknownUserDoesNotWaitForPasswordGrant() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(userService.findByEmail("x@y.z")).thenReturn(Optional.empty());
+		when(keycloakService.authenticateUser("x@y.z", "pw")).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			return new TokenResponse();
+		});
+
+		try {
+			long start = System.nanoTime();
+			LoginService.LoginResult result = loginService.login("x@y.z", "pw");
+
+			assertNull(result.user());
+			assertNull(result.tokens());
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void unknownUserIsReportedWhenGrantFailsFirst() throws Exception {
+		when(keycloakService.authenticateUser("x@y.z", "bad")).thenThrow(new RuntimeException("Invalid credentials"));
+		when(userService.findByEmail("x@y.z")).thenAnswer(invocation -> {
+			Thread.sleep(500);
+			return Optional.empty();
+		});
+
+		LoginService.LoginResult result = loginService.login("x@y.z", "bad");
+
+		assertNull(result.user());
+		assertNull(result.tokens());
+	}
+
+	@Test
+	void grantFailureIsRethrownForKnownUser() {
+		when(keycloakService.authenticateUser("a@b.c", "bad")).thenThrow(new RuntimeException("Invalid credentials"));
+		when(userService.findByEmail("a@b.c")).thenAnswer(invocation -> {
+			Thread.sleep(500);
+			return Optional.of(new User("kc-1", "a@b.c", "A", "B", null, User.UserType.owner));
+		});
+
+		RuntimeException e = assertThrows(RuntimeException.class, () -> loginService.login("a@b.c", "bad"));
+		assertEquals("Invalid credentials", e.getMessage());
+	}
+
+	@Test
+	void timedOutLoginIsServiceUnavailable() {
+		CountDownLatch release = new CountDownLatch(1);
+		ReflectionTestUtils.setField(loginService, "timeout", Duration.ofMillis(50));
+		when(userService.findByEmail("a@b.c")).thenReturn(Optional.of(new User("kc-1", "a@b.c", "A", "B", null, User.UserType.owner)));
+		when(keycloakService.authenticateUser("a@b.c", "pw")).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return new TokenResponse();
+		});
+
+		try {
+			ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class, () -> loginService.login("a@b.c", "pw"));
+			assertEquals(1, e.getRetryAfterSeconds());
+		} finally {
+			release.countDown();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.renter.auth.service;
+
+import com.renter.auth.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestRateLimiterTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void limitsEachEmailIndependentlyOfItsClient() {
+		RequestRateLimiter limiter = limiter(true, 100, 3);
+
+		for (int i = 0; i < 3; i++) {
+			limiter.checkRegister("10.0.0." + i, "Alice@Example.com");
+		}
+		TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+				() -> limiter.checkRegister("10.0.0.9", " alice@example.com"));
+
+		assertTrue(e.getRetryAfterSeconds() >= 1 && e.getRetryAfterSeconds() <= 20, "retry after " + e.getRetryAfterSeconds());
+		limiter.checkRegister("10.0.0.9", "bob@example.com");
+		assertEquals(1.0, meterRegistry.get("auth.rate-limit.rejections").tag("endpoint", "register").tag("key", "email").counter().count());
+	}
+
+	@Test
+	void concurrentRequestsNeverExceedTheBurst() throws Exception {
+		RequestRateLimiter limiter = limiter(true, 50, 0);
+		AtomicInteger allowed = new AtomicInteger();
+
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 400; i++) {
+			callers.execute(() -> {
+				try {
+					limiter.checkRegister("10.0.0.1", "someone@example.com");
+					allowed.incrementAndGet();
+				} catch (TooManyRequestsException ignored) {
+				}
+			});
+		}
+		callers.shutdown();
+		assertTrue(callers.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(50, allowed.get());
+	}
+
+	@Test
+	void disabledLimiterAllowsEverything() {
+		RequestRateLimiter limiter = limiter(false, 1, 1);
+
+		for (int i = 0; i < 10; i++) {
+			limiter.checkRegister("10.0.0.1", "alice@example.com");
+		}
+	}
+
+	private RequestRateLimiter limiter(boolean enabled, int registerPerIp, int registerPerEmail) {
+		return new RequestRateLimiter(enabled, 1000, Duration.ofMinutes(1), 60, 10, registerPerIp, registerPerEmail, meterRegistry);
+	}
+}
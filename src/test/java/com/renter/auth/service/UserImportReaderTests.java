@@ -0,0 +1,85 @@
+package com.renter.auth.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renter.auth.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserImportReaderTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void parsesQuotedCsvFields() {
+		assertEquals(List.of("a,b", "say \"hi\"", "", "plain"),
+				UserImportReader.parseCsvLine("\"a,b\",\"say \"\"hi\"\"\",,plain"));
+	}
+
+	@Test
+	void readsCsvRowsByHeaderWithFileLineNumbers() {
+		List<UserImportReader.Row> rows = read(UserImportReader.Format.CSV, """
+				email,password,firstName,lastName,userType,addressLine1,city,country
+
+				jane@example.com,pw1,Jane,Doe,owner,"1 Main Street, Flat 2",Pune,India
+				john@example.com,pw2,John,,tenant,2 Side Road,Delhi,India
+				""");
+
+		assertEquals(2, rows.size());
+		UserImportReader.Row jane = rows.get(0);
+		assertEquals(3, jane.line());
+		assertNull(jane.error());
+		assertEquals("jane@example.com", jane.request().getEmail());
+		assertEquals(User.UserType.owner, jane.request().getUserType());
+		assertEquals("1 Main Street, Flat 2", jane.request().getProfile().getAddressLine1());
+		assertEquals("Pune", jane.request().getProfile().getCity());
+
+		UserImportReader.Row john = rows.get(1);
+		assertEquals(4, john.line());
+		assertNull(john.request().getLastName());
+	}
+
+	@Test
+	void badCsvRowIsReportedWithoutStoppingTheImport() {
+		List<UserImportReader.Row> rows = read(UserImportReader.Format.CSV, """
+				email,password,userType
+				a@example.com,pw,landlord
+				b@example.com,pw,owner
+				""");
+
+		assertEquals(2, rows.size());
+		assertEquals(2, rows.get(0).line());
+		assertNull(rows.get(0).request());
+		assertTrue(rows.get(0).error().startsWith("Unreadable row"));
+		assertEquals(3, rows.get(1).line());
+		assertNull(rows.get(1).error());
+	}
+
+	@Test
+	void readsNdjsonRowsAndReportsBadLines() {
+		List<UserImportReader.Row> rows = read(UserImportReader.Format.NDJSON, """
+				{"email":"jane@example.com","password":"pw","userType":"owner","profile":{"city":"Pune"}}
+				{"email":
+				{"email":"john@example.com","password":"pw","userType":"tenant"}
+				""");
+
+		assertEquals(3, rows.size());
+		assertEquals("Pune", rows.get(0).request().getProfile().getCity());
+		assertEquals(2, rows.get(1).line());
+		assertNotNull(rows.get(1).error());
+		assertEquals(3, rows.get(2).line());
+		assertEquals("john@example.com", rows.get(2).request().getEmail());
+	}
+
+	private List<UserImportReader.Row> read(UserImportReader.Format format, String input) {
+		UserImportReader reader = new UserImportReader(new BufferedReader(new StringReader(input)), format, objectMapper);
+		List<UserImportReader.Row> rows = new ArrayList<>();
+		reader.forEachRemaining(rows::add);
+		return rows;
+	}
+}
@@ -0,0 +1,128 @@
+package com.renter.auth.service;
+
+import com.renter.auth.dto.ImportRowResult;
+import com.renter.auth.dto.RegisterRequest;
+import com.renter.auth.dto.UserProfileDto;
+import com.renter.auth.model.User;
+import com.renter.auth.repository.UserProfileRepository;
+import com.renter.auth.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceTests {
+
+	private final KeycloakService keycloakService = mock(KeycloakService.class);
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final UserProfileRepository userProfileRepository = mock(UserProfileRepository.class);
+	private final UserImportService importService = new UserImportService(mock(PlatformTransactionManager.class));
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(importService, "userService", new UserService());
+		ReflectionTestUtils.setField(importService, "keycloakService", keycloakService);
+		ReflectionTestUtils.setField(importService, "userRepository", userRepository);
+		ReflectionTestUtils.setField(importService, "userProfileRepository", userProfileRepository);
+		ReflectionTestUtils.setField(importService, "entityManager", mock(EntityManager.class));
+		ReflectionTestUtils.setField(importService, "chunkSize", 10);
+	}
+
+	@Test
+	void duplicateEmailsInAChunkAreSkippedIgnoringCase() {
+		when(keycloakService.importUsers(any())).thenReturn(Map.of(
+				"jane@example.com", new KeycloakService.ImportedUser("kc-jane", true)));
+
+		List<ImportRowResult> results = run(row(1, "jane@example.com"), row(2, "Jane@Example.com"));
+
+		assertEquals(ImportRowResult.Status.created, results.get(0).status());
+		assertEquals(ImportRowResult.Status.skipped, results.get(1).status());
+		assertEquals("Duplicate email in import", results.get(1).error());
+		verify(keycloakService).importUsers(argThat(users -> users.size() == 1));
+	}
+
+	@Test
+	void registeredEmailsAreSkippedIgnoringCase() {
+		when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of("jane@example.com"));
+
+		List<ImportRowResult> results = run(row(1, "Jane@Example.com"));
+
+		assertEquals(ImportRowResult.Status.skipped, results.get(0).status());
+		assertEquals("Email already registered", results.get(0).error());
+		verify(userRepository).findExistingEmails(List.of("jane@example.com"));
+		verifyNoInteractions(keycloakService);
+	}
+
+	@Test
+	void mapsPartialImportOutcomesPerRow() {
+		when(keycloakService.importUsers(any())).thenReturn(Map.of(
+				"new@example.com", new KeycloakService.ImportedUser("kc-new", true),
+				"taken@example.com", new KeycloakService.ImportedUser("kc-other", false)));
+
+		List<ImportRowResult> results = run(row(1, "New@Example.com"), row(2, "taken@example.com"),
+				row(3, "lost@example.com"), new UserImportReader.Row(4, null, "Unreadable row: bad"));
+
+		assertEquals(ImportRowResult.Status.created, results.get(0).status());
+		assertEquals("kc-new", results.get(0).keycloakUserId());
+		assertEquals(ImportRowResult.Status.skipped, results.get(1).status());
+		assertEquals("Username already exists in Keycloak", results.get(1).error());
+		assertEquals(ImportRowResult.Status.failed, results.get(2).status());
+		assertEquals("Not imported by Keycloak", results.get(2).error());
+		assertEquals(ImportRowResult.Status.failed, results.get(3).status());
+		assertEquals(List.of(1L, 2L, 3L, 4L), results.stream().map(ImportRowResult::line).toList());
+	}
+
+	@Test
+	void failedDatabaseWriteRemovesKeycloakUsersAndReportsOrphans() throws Exception {
+		when(keycloakService.importUsers(any())).thenReturn(Map.of(
+				"a@example.com", new KeycloakService.ImportedUser("kc-a", true),
+				"b@example.com", new KeycloakService.ImportedUser("kc-b", true),
+				"c@example.com", new KeycloakService.ImportedUser("kc-c", true)));
+		when(userRepository.saveAll(any())).thenThrow(new DataIntegrityViolationException("duplicate phone"));
+		doThrow(new IllegalStateException("Keycloak unavailable")).when(keycloakService).deleteUser("kc-b");
+
+		List<ImportRowResult> results = run(row(1, "a@example.com"), row(2, "b@example.com"), row(3, "c@example.com"));
+
+		verify(keycloakService).deleteUser("kc-a");
+		verify(keycloakService).deleteUser("kc-b");
+		verify(keycloakService).deleteUser("kc-c");
+		assertTrue(results.stream().allMatch(result -> result.status() == ImportRowResult.Status.failed));
+		assertNull(results.get(0).keycloakUserId());
+		assertEquals("kc-b", results.get(1).keycloakUserId());
+		assertTrue(results.get(1).error().contains("Keycloak user could not be removed"));
+		assertNull(results.get(2).keycloakUserId());
+	}
+
+	private List<ImportRowResult> run(UserImportReader.Row... rows) {
+		List<ImportRowResult> results = new ArrayList<>();
+		importService.importUsers(List.of(rows).iterator(), results::addAll);
+		return results;
+	}
+
+	private static UserImportReader.Row row(long line, String email) {
+		UserProfileDto profile = new UserProfileDto();
+		profile.setAddressLine1("1 Main Street");
+		profile.setCity("Pune");
+		profile.setCountry("India");
+
+		RegisterRequest request = new RegisterRequest();
+		request.setEmail(email);
+		request.setPassword("s3cret-Pa55");
+		request.setFirstName("Jane");
+		request.setUserType(User.UserType.owner);
+		request.setProfile(profile);
+		return new UserImportReader.Row(line, request, null);
+	}
+}
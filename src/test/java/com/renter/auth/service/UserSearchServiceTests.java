@@ -0,0 +1,85 @@
+package com.renter.auth.service;
+
+import com.renter.auth.dto.UserSearchPage;
+import com.renter.auth.dto.UserSummary;
+import com.renter.auth.exception.BadRequestException;
+import com.renter.auth.model.User;
+import com.renter.auth.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserSearchServiceTests {
+
+	@MockBean
+	private KeycloakService keycloakService;
+
+	@Autowired
+	private UserSearchService userSearchService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void pagesThroughAllMatchesOnceNewestFirst() {
+		String prefix = "search-" + UUID.randomUUID().toString().substring(0, 8);
+		for (int i = 0; i < 5; i++) {
+			save(prefix + "-" + i + "@example.com", User.UserType.owner);
+		}
+		save("other-" + prefix + "@example.com", User.UserType.owner);
+
+		List<UserSummary> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			UserSearchPage page = userSearchService.search(criteria(prefix.toUpperCase(), null), cursor, 2);
+			assertTrue(page.items().size() <= 2);
+			seen.addAll(page.items());
+			cursor = page.nextCursor();
+		} while (cursor != null);
+
+		assertEquals(5, seen.size());
+		assertEquals(5, new HashSet<>(seen.stream().map(UserSummary::id).toList()).size());
+		for (int i = 1; i < seen.size(); i++) {
+			assertFalse(seen.get(i).createdAt().isAfter(seen.get(i - 1).createdAt()));
+		}
+	}
+
+	@Test
+	void filtersByUserType() {
+		String prefix = "type-" + UUID.randomUUID().toString().substring(0, 8);
+		save(prefix + "-owner@example.com", User.UserType.owner);
+		save(prefix + "-tenant@example.com", User.UserType.tenant);
+
+		UserSearchPage page = userSearchService.search(criteria(prefix, User.UserType.tenant), null, 10);
+
+		assertEquals(1, page.items().size());
+		assertEquals(User.UserType.tenant, page.items().get(0).userType());
+		assertNull(page.nextCursor());
+	}
+
+	@Test
+	void rejectsBadCursorAndLimit() {
+		assertThrows(BadRequestException.class, () -> userSearchService.search(criteria(null, null), "not-a-cursor", 10));
+		assertThrows(BadRequestException.class, () -> userSearchService.search(criteria(null, null), null, 0));
+	}
+
+	private static UserSearchService.UserSearchCriteria criteria(String query, User.UserType userType) {
+		return new UserSearchService.UserSearchCriteria(query, null, null, userType, null);
+	}
+
+	private void save(String email, User.UserType userType) {
+		String phone = userType == User.UserType.tenant ? String.valueOf(System.nanoTime() % 10_000_000_000L) : null;
+		userRepository.save(new User(UUID.randomUUID().toString(), email, "Search", "User", phone, userType));
+	}
+}
@@ -0,0 +1,111 @@
+package com.renter.auth.service;
+
+import com.renter.auth.dto.RegisterRequest;
+import com.renter.auth.dto.UserProfileDto;
+import com.renter.auth.exception.ConflictException;
+import com.renter.auth.model.ProvisioningTask;
+import com.renter.auth.model.User;
+import com.renter.auth.repository.ProvisioningTaskRepository;
+import com.renter.auth.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserServiceTests {
+
+	@MockBean
+	private KeycloakService keycloakService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProvisioningTaskRepository provisioningTaskRepository;
+
+	@Autowired
+	private CurrentUserLoader currentUserLoader;
+
+	@Test
+	void pendingRegistrationBlocksTheEmail() {
+		RegisterRequest request = registerRequest(UUID.randomUUID() + "@example.com");
+		userService.registerUser(request);
+
+		assertThrows(ConflictException.class, () -> userService.registerUser(request));
+	}
+
+	@Test
+	void emailsDifferingOnlyInCaseAreTheSameRegistration() {
+		String email = UUID.randomUUID() + "@example.com";
+		userService.registerUser(registerRequest(email.toUpperCase()));
+
+		assertThrows(ConflictException.class, () -> userService.registerUser(registerRequest(email)));
+		assertTrue(userService.findByEmail(email).isPresent());
+	}
+
+	@Test
+	void failedRegistrationIsReplaced() {
+		RegisterRequest request = registerRequest(UUID.randomUUID() + "@example.com");
+		ProvisioningTask failed = userService.registerUser(request);
+		failed.markFailed("Username already exists in Keycloak");
+		provisioningTaskRepository.save(failed);
+
+		ProvisioningTask replacement = userService.registerUser(request);
+
+		assertNotEquals(failed.getUserId(), replacement.getUserId());
+		assertTrue(userRepository.findById(failed.getUserId()).isEmpty());
+		assertTrue(provisioningTaskRepository.findById(failed.getId()).isEmpty());
+		assertEquals(ProvisioningTask.Status.PENDING,
+				provisioningTaskRepository.findByUserId(replacement.getUserId()).orElseThrow().getStatus());
+	}
+
+	@Test
+	void registeredUserIsVisibleToTheNextCurrentUserLookup() {
+		String email = UUID.randomUUID() + "@example.com";
+		assertTrue(userService.findByEmail(email).isEmpty());
+
+		ProvisioningTask task = userService.registerUser(registerRequest(email));
+
+		assertEquals(task.getUserId(), currentUserLoader.load(task.getKeycloakUserId()).orElseThrow().getId());
+	}
+
+	@Test
+	void replacedRegistrationIsGoneFromCurrentUserLookup() {
+		RegisterRequest request = registerRequest(UUID.randomUUID() + "@example.com");
+		ProvisioningTask failed = userService.registerUser(request);
+		assertTrue(currentUserLoader.load(failed.getKeycloakUserId()).isPresent());
+		failed.markFailed("Not imported by Keycloak");
+		provisioningTaskRepository.save(failed);
+
+		ProvisioningTask replacement = userService.registerUser(request);
+
+		assertTrue(currentUserLoader.load(failed.getKeycloakUserId()).isEmpty());
+		assertTrue(currentUserLoader.load(replacement.getKeycloakUserId()).isPresent());
+	}
+
+	private static RegisterRequest registerRequest(String email) {
+		UserProfileDto profile = new UserProfileDto();
+		profile.setAddressLine1("1 Main Street");
+		profile.setCity("Pune");
+		profile.setCountry("India");
+
+		RegisterRequest request = new RegisterRequest();
+		request.setEmail(email);
+		request.setFirstName("Jane");
+		request.setLastName("Doe");
+		request.setPassword("s3cret-Pa55");
+		request.setUserType(User.UserType.owner);
+		request.setProfile(profile);
+		return request;
+	}
+}